@@ -0,0 +1,134 @@
+package Bench;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Small benchmark runner for hot paths in both games; no external libraries needed.
+//
+// Usage: Harness [--filter=regex] [--warmup-ms=1000] [--measure-ms=2000] [--batches=10]
+//                [--csv=results.csv]
+// Run with -Djava.awt.headless=true so paint benchmarks need no display.
+//
+// Each benchmark gets a calibrated operation count so one batch takes about
+// measure-ms / batches. After warm-up, every batch reports time per operation and
+// the bytes this thread allocated per operation (com.sun.management.ThreadMXBean),
+// plus collections seen during the whole measurement. Benchmarks fold their
+// results into a value passed to consume() so the JIT cannot drop the work.
+// With --csv, one row per benchmark is appended for before/after comparisons.
+public final class Harness {
+    // Performs ops operations and returns something derived from all of them.
+    public interface Benchmark {
+        long run(long ops);
+    }
+
+    private static volatile long sink;
+    private final Pattern filter;
+    private final long warmupNanos, measureNanos;
+    private final int batches;
+    private final Path csv;
+    private final com.sun.management.ThreadMXBean threads;
+
+    public Harness(String filter, long warmupMillis, long measureMillis, int batches, Path csv) {
+        this.filter = filter == null ? null : Pattern.compile(filter);
+        warmupNanos = warmupMillis * 1_000_000;
+        measureNanos = measureMillis * 1_000_000;
+        this.batches = Math.max(1, batches);
+        this.csv = csv;
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    public static void consume(long v) {
+        sink ^= v;
+    }
+
+    public void run(String name, Benchmark b) {
+        if (filter != null && !filter.matcher(name).find()) return;
+        // Calibrate while warming up: double until a call takes about one batch
+        long batchNanos = Math.max(1, measureNanos / batches), ops = 1, warmEnd = System.nanoTime() + warmupNanos;
+        while (true) {
+            long t = System.nanoTime();
+            consume(b.run(ops));
+            long took = System.nanoTime() - t;
+            if (took >= batchNanos / 2 || ops >= Long.MAX_VALUE / 4) {
+                ops = Math.max(1, (long) (ops * (double) batchNanos / Math.max(took, 1)));
+                break;
+            }
+            ops *= 2;
+        }
+        while (System.nanoTime() < warmEnd) consume(b.run(ops));
+
+        long tid = Thread.currentThread().getId(), gcCount = -gcCount(), gcMillis = -gcMillis();
+        double sum = 0, sumSq = 0, bytes = 0;
+        for (int i = 0; i < batches; i++) {
+            long a = threads.getThreadAllocatedBytes(tid), t = System.nanoTime();
+            consume(b.run(ops));
+            long took = System.nanoTime() - t, alloc = threads.getThreadAllocatedBytes(tid) - a;
+            double ns = (double) took / ops;
+            sum += ns;
+            sumSq += ns * ns;
+            bytes += (double) alloc / ops;
+        }
+        gcCount += gcCount();
+        gcMillis += gcMillis();
+        double mean = sum / batches, dev = Math.sqrt(Math.max(0, sumSq / batches - mean * mean)), perOp = bytes / batches;
+        System.out.println(String.format(Locale.ROOT, "%-36s %12.1f ns/op +- %-8.1f %14.0f ops/s %10.1f B/op  gc %d (%d ms)",
+                name, mean, dev, 1e9 / mean, perOp, gcCount, gcMillis));
+        if (csv != null) append(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.1f,%d,%d", name, mean, dev, perOp, gcCount, gcMillis));
+    }
+
+    private void append(String row) {
+        try {
+            boolean header = !Files.exists(csv);
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                if (header) out.println("benchmark,ns_per_op,stddev,bytes_per_op,gc_count,gc_ms");
+                out.println(row);
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not write " + csv + ": " + ex);
+        }
+    }
+
+    private static long gcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionCount());
+        return n;
+    }
+
+    private static long gcMillis() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionTime());
+        return n;
+    }
+
+    public static void main(String[] args) {
+        String filter = null, csv = null;
+        long warmup = 1000, measure = 2000;
+        int batches = 10;
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value, got " + a);
+            String k = a.substring(2, eq), v = a.substring(eq + 1);
+            switch (k) {
+                case "filter": filter = v; break;
+                case "warmup-ms": warmup = Long.parseLong(v); break;
+                case "measure-ms": measure = Long.parseLong(v); break;
+                case "batches": batches = Integer.parseInt(v); break;
+                case "csv": csv = v; break;
+                default: throw new IllegalArgumentException("Unknown option --" + k);
+            }
+        }
+        Harness h = new Harness(filter, warmup, measure, batches, csv == null ? null : Paths.get(csv));
+        Tetris.TetrisBench.run(h);
+        Solitaire.SolitaireBench.run(h);
+    }
+}
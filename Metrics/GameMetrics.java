@@ -0,0 +1,236 @@
+package Metrics;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.EventType;
+
+// Runtime instrumentation shared by both games. Each game gets one instance, registered
+// over JMX as Random:type=GameMetrics,name=<game>, and reports its ticks, paints and
+// input events, plus the intervals between animation frames, into lock-free
+// histograms. While a Flight Recorder recording has the events enabled, every tick and
+// paint is also committed as a Random.Tick or Random.Paint event, so stutters line up
+// against GC and safepoint events on one timeline.
+//
+// Off unless the JVM runs with -Dmetrics=true. ENABLED is a constant, so when it is
+// false the JIT folds every call below down to nothing.
+//
+// tickStart/tickEnd must be called from one thread and paintStart/paintEnd from one
+// thread (the simulation thread and the EDT); event() may come from anywhere.
+public final class GameMetrics implements GameMetricsMBean {
+    public static final boolean ENABLED = Boolean.getBoolean("metrics");
+    private static final Map<String, GameMetrics> REGISTRY = new ConcurrentHashMap<>();
+    private static final EventType TICK_TYPE = ENABLED ? EventType.getEventType(TickEvent.class) : null;
+    private static final EventType PAINT_TYPE = ENABLED ? EventType.getEventType(PaintEvent.class) : null;
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final String game;
+    private final LatencyHistogram tickTime = new LatencyHistogram(), tickLate = new LatencyHistogram();
+    private final LatencyHistogram tickAlloc = new LatencyHistogram(), paintTime = new LatencyHistogram();
+    private final LatencyHistogram paintAlloc = new LatencyHistogram(), frameTime = new LatencyHistogram();
+    private final AtomicLong events = new AtomicLong(), framesOver = new AtomicLong();
+    // Events in the current second, packed as second << 32 | count
+    private final AtomicLong window = new AtomicLong();
+    private volatile int lastRate;
+    // Start state of the tick and paint in progress, each owned by its one thread
+    private long tickBytes, paintBytes;
+    private TickEvent tickEvent;
+    private PaintEvent paintEvent;
+
+    private GameMetrics(String game) {
+        this.game = game;
+    }
+
+    // Instance for the given game, created and registered with JMX on first use.
+    public static GameMetrics get(String game) {
+        return REGISTRY.computeIfAbsent(game, g -> {
+            GameMetrics m = new GameMetrics(g);
+            if (ENABLED) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().registerMBean(m, new ObjectName("Random:type=GameMetrics,name=" + g));
+                } catch (JMException ex) {
+                    System.err.println("Metrics for " + g + " not exported over JMX: " + ex);
+                }
+            }
+            return m;
+        });
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (!ENABLED || !(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!t.isThreadAllocatedMemorySupported()) return null;
+        t.setThreadAllocatedMemoryEnabled(true);
+        return t;
+    }
+
+    private static long allocated() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // Returns the start time to hand to tickEnd, or 0 when metrics are off.
+    public long tickStart() {
+        if (!ENABLED) return 0;
+        if (TICK_TYPE.isEnabled()) {
+            tickEvent = new TickEvent();
+            tickEvent.begin();
+        }
+        tickBytes = allocated();
+        return System.nanoTime();
+    }
+
+    // lateNanos is how far past its scheduled time the tick started.
+    public void tickEnd(long start, long lateNanos) {
+        if (!ENABLED || start == 0) return;
+        long took = System.nanoTime() - start, bytes = allocated() - tickBytes;
+        tickTime.record(took);
+        tickLate.record(lateNanos);
+        tickAlloc.record(bytes);
+        TickEvent e = tickEvent;
+        if (e == null) return;
+        tickEvent = null;
+        e.end();
+        if (e.shouldCommit()) {
+            e.game = game;
+            e.lateness = lateNanos;
+            e.allocated = bytes;
+            e.commit();
+        }
+    }
+
+    // Returns the start time to hand to paintEnd, or 0 when metrics are off.
+    public long paintStart() {
+        if (!ENABLED) return 0;
+        if (PAINT_TYPE.isEnabled()) {
+            paintEvent = new PaintEvent();
+            paintEvent.begin();
+        }
+        paintBytes = allocated();
+        return System.nanoTime();
+    }
+
+    public void paintEnd(long start) {
+        if (!ENABLED || start == 0) return;
+        long took = System.nanoTime() - start, bytes = allocated() - paintBytes;
+        paintTime.record(took);
+        paintAlloc.record(bytes);
+        PaintEvent e = paintEvent;
+        if (e == null) return;
+        paintEvent = null;
+        e.end();
+        if (e.shouldCommit()) {
+            e.game = game;
+            e.allocated = bytes;
+            e.commit();
+        }
+    }
+
+    // One animation frame, intervalNanos after the previous one; frames that took longer
+    // than budgetNanos count as over budget (dropped, to the eye).
+    public void frame(long intervalNanos, long budgetNanos) {
+        if (!ENABLED) return;
+        frameTime.record(intervalNanos);
+        if (intervalNanos > budgetNanos) framesOver.incrementAndGet();
+    }
+
+    // One handled input event (key or mouse).
+    public void event() {
+        if (!ENABLED) return;
+        events.incrementAndGet();
+        long second = System.nanoTime() / 1_000_000_000L;
+        while (true) {
+            long w = window.get();
+            if (w >>> 32 == second) {
+                if (window.compareAndSet(w, w + 1)) return;
+            } else if (window.compareAndSet(w, second << 32 | 1)) {
+                lastRate = w >>> 32 == second - 1 ? (int) w : 0;
+                return;
+            }
+        }
+    }
+
+    public String getGame() { return game; }
+    public LatencyHistogram getTickTime() { return tickTime; }
+    public LatencyHistogram getTickLateness() { return tickLate; }
+    public LatencyHistogram getTickAllocation() { return tickAlloc; }
+    public LatencyHistogram getPaintTime() { return paintTime; }
+    public LatencyHistogram getPaintAllocation() { return paintAlloc; }
+    public LatencyHistogram getFrameTime() { return frameTime; }
+
+    @Override public boolean isEnabled() { return ENABLED; }
+    @Override public long getTicks() { return tickTime.count(); }
+    @Override public long getTickP50Nanos() { return tickTime.percentile(0.5); }
+    @Override public long getTickP99Nanos() { return tickTime.percentile(0.99); }
+    @Override public long getTickMaxNanos() { return tickTime.percentile(1.0); }
+    @Override public long getTickJitterP99Nanos() { return tickLate.percentile(0.99); }
+    @Override public long getTickJitterMaxNanos() { return tickLate.percentile(1.0); }
+    @Override public long getTickBytesP50() { return tickAlloc.percentile(0.5); }
+    @Override public long getPaints() { return paintTime.count(); }
+    @Override public long getPaintP50Nanos() { return paintTime.percentile(0.5); }
+    @Override public long getPaintP99Nanos() { return paintTime.percentile(0.99); }
+    @Override public long getPaintMaxNanos() { return paintTime.percentile(1.0); }
+    @Override public long getPaintBytesP50() { return paintAlloc.percentile(0.5); }
+    @Override public long getPaintBytesP99() { return paintAlloc.percentile(0.99); }
+    @Override public long getFrames() { return frameTime.count(); }
+    @Override public long getFrameP50Nanos() { return frameTime.percentile(0.5); }
+    @Override public long getFrameP99Nanos() { return frameTime.percentile(0.99); }
+    @Override public long getFrameMaxNanos() { return frameTime.percentile(1.0); }
+    @Override public long getFramesOverBudget() { return framesOver.get(); }
+    @Override public long getEvents() { return events.get(); }
+
+    // Events in the last complete second; zero once input has been idle for a second.
+    @Override
+    public int getEventsPerSecond() {
+        long w = window.get(), second = System.nanoTime() / 1_000_000_000L;
+        if (w >>> 32 == second) return lastRate;
+        return w >>> 32 == second - 1 ? (int) w : 0;
+    }
+
+    @Override
+    public long getGcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionCount());
+        return n;
+    }
+
+    @Override
+    public long getGcMillis() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionTime());
+        return n;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder(game).append(ENABLED ? "" : " (disabled, run with -Dmetrics=true)");
+        if (getTicks() > 0)
+            sb.append("\n  tick   ").append(tickTime.summary()).append("\n  late   ").append(tickLate.summary())
+                    .append("\n  tick B ").append(bytes(tickAlloc));
+        if (getPaints() > 0)
+            sb.append("\n  paint  ").append(paintTime.summary()).append("\n  paint B ").append(bytes(paintAlloc));
+        if (getFrames() > 0)
+            sb.append("\n  frame  ").append(frameTime.summary()).append(", ").append(getFramesOverBudget()).append(" over budget");
+        sb.append("\n  events ").append(getEvents()).append(" (").append(getEventsPerSecond()).append("/s)");
+        sb.append("\n  gc     ").append(getGcCount()).append(" collections, ").append(getGcMillis()).append(" ms");
+        return sb.toString();
+    }
+
+    private static String bytes(LatencyHistogram h) {
+        return String.format("p50=%d p99=%d max=%d", h.percentile(0.5), h.percentile(0.99), h.percentile(1.0));
+    }
+
+    @Override
+    public void reset() {
+        tickTime.reset();
+        tickLate.reset();
+        tickAlloc.reset();
+        paintTime.reset();
+        paintAlloc.reset();
+        frameTime.reset();
+        framesOver.set(0);
+        events.set(0);
+    }
+}
@@ -0,0 +1,32 @@
+package Metrics;
+
+// JMX view of GameMetrics. Times are in nanoseconds, allocation in bytes per tick or paint.
+public interface GameMetricsMBean {
+    boolean isEnabled();
+    long getTicks();
+    long getTickP50Nanos();
+    long getTickP99Nanos();
+    long getTickMaxNanos();
+    // How late ticks started against their fixed schedule
+    long getTickJitterP99Nanos();
+    long getTickJitterMaxNanos();
+    long getTickBytesP50();
+    long getPaints();
+    long getPaintP50Nanos();
+    long getPaintP99Nanos();
+    long getPaintMaxNanos();
+    long getPaintBytesP50();
+    long getPaintBytesP99();
+    // Intervals between animation frames, and how many overran the frame budget
+    long getFrames();
+    long getFrameP50Nanos();
+    long getFrameP99Nanos();
+    long getFrameMaxNanos();
+    long getFramesOverBudget();
+    long getEvents();
+    int getEventsPerSecond();
+    long getGcCount();
+    long getGcMillis();
+    String getSummary();
+    void reset();
+}
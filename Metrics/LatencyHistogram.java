@@ -0,0 +1,54 @@
+package Metrics;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free log-linear histogram of nanosecond durations: 16 buckets per power of
+// two, so any recorded value is reported within about 6%. Any thread may record
+// while another reads percentiles.
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4, SUB = 1 << SUB_BITS;
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB);
+
+    static int index(long v) {
+        if (v < SUB) return (int) Math.max(v, 0);
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return ((e - SUB_BITS + 1) << SUB_BITS) + (int) ((v >>> (e - SUB_BITS)) & (SUB - 1));
+    }
+
+    // Smallest value that maps to the bucket.
+    static long lowerBound(int i) {
+        if (i < SUB) return i;
+        int e = (i >>> SUB_BITS) + SUB_BITS - 1;
+        return (long) (SUB + (i & (SUB - 1))) << (e - SUB_BITS);
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(index(nanos));
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+        return n;
+    }
+
+    // Value at or below which the given fraction (0..1) of samples fall, in nanoseconds.
+    public long percentile(double p) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * total)), seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return i + 1 < counts.length() ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+    }
+
+    public String summary() {
+        return String.format("n=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms", count(),
+                percentile(0.5) / 1e6, percentile(0.9) / 1e6, percentile(0.99) / 1e6, percentile(1.0) / 1e6);
+    }
+}
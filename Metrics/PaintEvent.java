@@ -0,0 +1,20 @@
+package Metrics;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One paintComponent call on the EDT.
+@Name("Random.Paint")
+@Label("Game Paint")
+@Category({"Random", "Game"})
+@StackTrace(false)
+final class PaintEvent extends jdk.jfr.Event {
+    @Label("Game")
+    String game;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
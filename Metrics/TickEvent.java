@@ -0,0 +1,27 @@
+package Metrics;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// One simulation tick; the event duration is the time spent in game logic.
+@Name("Random.Tick")
+@Label("Game Tick")
+@Category({"Random", "Game"})
+@StackTrace(false)
+final class TickEvent extends jdk.jfr.Event {
+    @Label("Game")
+    String game;
+
+    @Label("Lateness")
+    @Description("How far past its scheduled time the tick started")
+    @Timespan(Timespan.NANOSECONDS)
+    long lateness;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,184 @@
+package Solitaire;
+import Metrics.GameMetrics;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+
+// Card flights for SolitairePanel. The game itself changes at once; a flight only
+// shows a card travelling from where it was to where it now is, optionally turning
+// over on the way. While a card is in flight its pile leaves it out and paint() draws
+// it instead, so nothing else needs to know about animation.
+//
+// One Swing timer is the frame clock for every flight. Each frame fixes the time all
+// flights are drawn at, and asks for a single repaint of the union of where they were
+// and where they are now; Toolkit.sync() after drawing pushes the frame out at once.
+// Flights live in parallel arrays, so starting one and drawing a frame allocate nothing
+// however many cards are moving.
+final class Animator {
+    static final long FRAME_NANOS = 1_000_000_000L / 60;
+    // Flight flags: the card turns face up on the way, or stays face down throughout
+    static final int TURN = 1, BACK = 2;
+    private static final int MAX = Klondike.CARDS;
+
+    private final JComponent target;
+    private final CardSprites sprites;
+    private final GameMetrics metrics;
+    private final Timer clock;
+    private final int[] card = new int[MAX], flags = new int[MAX];
+    private final int[] x0 = new int[MAX], y0 = new int[MAX], x1 = new int[MAX], y1 = new int[MAX];
+    private final int[] lastX = new int[MAX], lastY = new int[MAX];
+    private final long[] start = new long[MAX], duration = new long[MAX];
+    private int flights;
+    // Bit per card id in flight
+    private long flying;
+    private long now, lastFrame;
+
+    Animator(JComponent target, CardSprites sprites, GameMetrics metrics) {
+        this(target, sprites, metrics, true);
+    }
+
+    // Without a clock nothing calls frame() but the owner (benchmarks drive it by hand).
+    Animator(JComponent target, CardSprites sprites, GameMetrics metrics, boolean clocked) {
+        this.target = target;
+        this.sprites = sprites;
+        this.metrics = metrics;
+        clock = clocked ? new Timer((int) (FRAME_NANOS / 1_000_000), e -> frame(System.nanoTime())) : null;
+    }
+
+    boolean isFlying(int card) { return (flying & 1L << card) != 0; }
+
+    // Flies card from (fromX, fromY) to (toX, toY), leaving after delayNanos. A card
+    // already in flight is redirected from wherever it is now.
+    void fly(int c, int fromX, int fromY, int toX, int toY, long delayNanos, long durationNanos, int flightFlags) {
+        if (flights == 0) now = lastFrame = System.nanoTime();
+        int i = indexOf(c);
+        if (i >= 0) {
+            fromX = lastX[i];
+            fromY = lastY[i];
+        } else {
+            i = flights++;
+            lastX[i] = fromX;
+            lastY[i] = fromY;
+        }
+        card[i] = c;
+        x0[i] = fromX;
+        y0[i] = fromY;
+        x1[i] = toX;
+        y1[i] = toY;
+        start[i] = now + delayNanos;
+        duration[i] = Math.max(1, durationNanos);
+        flags[i] = flightFlags;
+        flying |= 1L << c;
+        if (clock != null && !clock.isRunning()) clock.start();
+        target.repaint(Math.min(fromX, toX), Math.min(fromY, toY), Math.abs(toX - fromX) + Layout.CARD_W + 1, Math.abs(toY - fromY) + Layout.CARD_H + 1);
+    }
+
+    // Ends card's flight where it is going, if it has one.
+    void land(int c) {
+        int i = indexOf(c);
+        if (i < 0) return;
+        target.repaint(lastX[i], lastY[i], Layout.CARD_W + 1, Layout.CARD_H + 1);
+        remove(i);
+    }
+
+    // Ends every flight, for when the piles change under them.
+    void clear() {
+        flights = 0;
+        flying = 0;
+        if (clock != null) clock.stop();
+        target.repaint();
+    }
+
+    private int indexOf(int c) {
+        if (!isFlying(c)) return -1;
+        for (int i = 0; i < flights; i++) if (card[i] == c) return i;
+        return -1;
+    }
+
+    private void remove(int i) {
+        flying &= ~(1L << card[i]);
+        int last = --flights;
+        card[i] = card[last];
+        flags[i] = flags[last];
+        x0[i] = x0[last];
+        y0[i] = y0[last];
+        x1[i] = x1[last];
+        y1[i] = y1[last];
+        lastX[i] = lastX[last];
+        lastY[i] = lastY[last];
+        start[i] = start[last];
+        duration[i] = duration[last];
+    }
+
+    // Moves the clock to time t: works out where every card is, lands the ones that
+    // have arrived, and repaints the region they covered and now cover.
+    void frame(long t) {
+        metrics.frame(t - lastFrame, FRAME_NANOS * 3 / 2);
+        lastFrame = now = t;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < flights; i++) {
+            double u = progress(i);
+            int x = x0[i] + (int) Math.round((x1[i] - x0[i]) * u), y = y0[i] + (int) Math.round((y1[i] - y0[i]) * u);
+            // Still waiting, or not moving and not turning over: nothing to redraw
+            if (x == lastX[i] && y == lastY[i] && u < 1 && (start[i] > now || (flags[i] & TURN) == 0)) continue;
+            minX = Math.min(minX, Math.min(x, lastX[i]));
+            minY = Math.min(minY, Math.min(y, lastY[i]));
+            maxX = Math.max(maxX, Math.max(x, lastX[i]));
+            maxY = Math.max(maxY, Math.max(y, lastY[i]));
+            lastX[i] = x;
+            lastY[i] = y;
+            if (u >= 1) remove(i--);
+        }
+        if (flights == 0 && clock != null) clock.stop();
+        if (minX <= maxX) target.repaint(minX, minY, maxX - minX + Layout.CARD_W + 1, maxY - minY + Layout.CARD_H + 1);
+    }
+
+    // 0 before the flight leaves, 1 once it has landed, eased out in between.
+    private double progress(int i) {
+        long t = now - start[i];
+        if (t <= 0) return 0;
+        if (t >= duration[i]) return 1;
+        double u = 1 - (double) t / duration[i];
+        return 1 - u * u * u;
+    }
+
+    // Draws every card in flight where the current frame put it, over cards still
+    // waiting to leave.
+    void paint(Graphics g) {
+        if (flights == 0) return;
+        drawWaiting(g);
+        for (int i = 0; i < flights; i++) if (start[i] <= now) draw(g, i);
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    // Cards waiting to leave, latest first so the next to go is on top. Only a cascade
+    // has many, so this walks the flights once per start time rather than sorting.
+    private void drawWaiting(Graphics g) {
+        long bound = Long.MAX_VALUE;
+        while (true) {
+            long latest = now;
+            for (int i = 0; i < flights; i++)
+                if (start[i] > latest && start[i] < bound) latest = start[i];
+            if (latest == now) return;
+            for (int i = 0; i < flights; i++) if (start[i] == latest) draw(g, i);
+            bound = latest;
+        }
+    }
+
+    private void draw(Graphics g, int i) {
+        int c = card[i], x = lastX[i], y = lastY[i];
+        if ((flags[i] & BACK) != 0) {
+            sprites.drawBack(g, x, y);
+            return;
+        }
+        if ((flags[i] & TURN) == 0) {
+            sprites.drawFace(g, c, x, y);
+            return;
+        }
+        // Back shrinks to nothing over the first half, face grows back over the second
+        double u = progress(i);
+        int width = (int) Math.round(Layout.CARD_W * Math.abs(1 - 2 * u));
+        sprites.drawTurning(g, c, u >= 0.5, x, y, width);
+    }
+}
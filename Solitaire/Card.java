@@ -1,17 +1,41 @@
 package Solitaire;
-public class Card {
+// Immutable and shared: there is exactly one Card per id, so the UI can map engine
+// card ids (Klondike) back to objects without allocating.
+public final class Card {
     public enum Suit { CLUBS, DIAMONDS, HEARTS, SPADES }
+    private static final String[] RANKS = {"A", "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K"};
+    private static final Card[] ALL = new Card[Klondike.CARDS];
+    static {
+        for (Suit suit : Suit.values())
+            for (int r = 1; r <= 13; r++) ALL[Klondike.id(suit.ordinal(), r)] = new Card(suit, r);
+    }
     public final Suit suit;
     public final int rank; // 1=Ace, 11=Jack, 12=Queen, 13=King
-    public boolean faceUp = false;
+    public final int id;   // suit * 13 + rank - 1
 
-    public Card(Suit suit, int rank) {
+    private Card(Suit suit, int rank) {
         this.suit = suit;
         this.rank = rank;
+        this.id = Klondike.id(suit.ordinal(), rank);
+    }
+
+    public static Card of(int id) {
+        return ALL[id];
+    }
+
+    public static Card of(Suit suit, int rank) {
+        return ALL[Klondike.id(suit.ordinal(), rank)];
+    }
+
+    public boolean isRed() {
+        return suit == Suit.HEARTS || suit == Suit.DIAMONDS;
+    }
+
+    public String getRankName() {
+        return RANKS[rank - 1];
     }
 
     public String toString() {
-        String[] ranks = {"A", "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K"};
-        return ranks[rank-1] + " of " + suit;
+        return RANKS[rank - 1] + " of " + suit;
     }
 }
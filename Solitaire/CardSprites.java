@@ -0,0 +1,112 @@
+package Solitaire;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+// The 52 faces, the card back and the empty-pile slot, each rendered once and then
+// blitted. Sprites are compatible images sized in device pixels for the scale the
+// Graphics is drawing at, so HiDPI screens get sharp cards and Java2D can keep them in
+// video memory; a change of scale throws them all away to be rendered again on use.
+final class CardSprites {
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final int BACK = Klondike.CARDS, SLOT = BACK + 1;
+
+    private final int w, h;
+    private final BufferedImage[] images = new BufferedImage[SLOT + 1];
+    private double scale = 0;
+    private Graphics checked;
+
+    CardSprites(int w, int h) {
+        this.w = w;
+        this.h = h;
+    }
+
+    void drawFace(Graphics g, int card, int x, int y) { draw(g, card, x, y, w); }
+    void drawBack(Graphics g, int x, int y) { draw(g, BACK, x, y, w); }
+    void drawSlot(Graphics g, int x, int y) { draw(g, SLOT, x, y, w); }
+
+    // Face or back squeezed to width (0 to w) about the card's centre, for turning cards over.
+    void drawTurning(Graphics g, int card, boolean face, int x, int y, int width) {
+        draw(g, face ? card : BACK, x + (w - width) / 2, y, width);
+    }
+
+    private void draw(Graphics g, int sprite, int x, int y, int width) {
+        Graphics2D g2 = (Graphics2D) g;
+        // getTransform() allocates, so the scale is checked once per Graphics (each paint gets a new one)
+        if (g != checked) {
+            checked = g;
+            AffineTransform t = g2.getTransform();
+            double s = Math.max(Math.abs(t.getScaleX()), Math.abs(t.getScaleY()));
+            if (s != scale) {
+                Arrays.fill(images, null);
+                scale = s;
+            }
+        }
+        BufferedImage img = images[sprite];
+        if (img == null) img = images[sprite] = render(g2.getDeviceConfiguration(), sprite);
+        // Outlines reach one pixel past w and h, so sprites are a pixel larger
+        g.drawImage(img, x, y, width + 1, h + 1, null);
+    }
+
+    private BufferedImage render(GraphicsConfiguration gc, int sprite) {
+        int pw = (int) Math.ceil((w + 1) * scale), ph = (int) Math.ceil((h + 1) * scale);
+        BufferedImage img = gc.createCompatibleImage(pw, ph, Transparency.TRANSLUCENT);
+        Graphics2D g = img.createGraphics();
+        g.scale(pw / (double) (w + 1), ph / (double) (h + 1));
+        if (sprite == SLOT) {
+            g.setColor(Color.LIGHT_GRAY);
+            g.fillRect(0, 0, w, h);
+        } else if (sprite == BACK) {
+            g.setColor(Color.BLUE.darker());
+            g.fillRoundRect(0, 0, w, h, 10, 10);
+            g.setColor(Color.WHITE);
+            g.drawRoundRect(0, 0, w, h, 10, 10);
+        } else {
+            renderFace(g, Card.of(sprite));
+        }
+        g.dispose();
+        return img;
+    }
+
+    private void renderFace(Graphics2D g, Card c) {
+        g.setColor(Color.WHITE);
+        g.fillRoundRect(0, 0, w, h, 10, 10);
+        g.setColor(Color.BLACK);
+        g.drawRoundRect(0, 0, w, h, 10, 10);
+        // ASCII art representation
+        String rank = c.getRankName();
+        String suitSymbol = getAsciiSuit(c.suit);
+        String[] art = new String[] {
+            "+------+",
+            String.format("|%-2s   |", rank),
+            "|      |",
+            String.format("|  %s   |", suitSymbol),
+            "|      |",
+            String.format("|   %-2s|", rank),
+            "+------+"
+        };
+        // Ensure all lines are exactly 8 chars
+        for (int i = 0; i < art.length; i++) {
+            if (art[i].length() < 8) art[i] = art[i] + " ".repeat(8 - art[i].length());
+            else if (art[i].length() > 8) art[i] = art[i].substring(0, 8);
+        }
+        g.setFont(FONT);
+        g.setColor(c.isRed() ? Color.RED : Color.BLACK);
+        int artHeight = art.length * 12; // 12px per line
+        int yOffset = (h - artHeight) / 2 + 12; // Center vertically, start a bit lower
+        for (int i = 0; i < art.length; i++) {
+            g.drawString(art[i], 4, yOffset + i * 12);
+        }
+    }
+
+    private static String getAsciiSuit(Card.Suit suit) {
+        switch (suit) {
+            case HEARTS: return "♥";
+            case DIAMONDS: return "♦";
+            case CLUBS: return "♣";
+            case SPADES: return "♠";
+            default: return "?";
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package Solitaire;
+import java.util.Arrays;
+
+// Deal numbers: every 64-bit number names one fixed order of the 52 cards, the same on
+// every machine and every run, so "deal #N" can be shared, replayed and surveyed.
+// Orders are card ids (Klondike) in the order they are dealt.
+//
+// shuffle() is a Fisher-Yates shuffle driven by SplitMix64 seeded with the number.
+// Each 64-bit output supplies two 32-bit draws, mapped onto the range by multiply and
+// shift; the bias that leaves is below 2^-26 per draw, which no game can notice.
+//
+// encode()/decode() convert any order (numbered or not) to its rank among all 52!
+// permutations, ENCODED_BYTES big-endian bytes, for storage and transfer. The forms
+// taking a scratch array from newScratch() allocate nothing.
+public final class Deal {
+    public static final int CARDS = Klondike.CARDS;
+    // 52! < 2^226
+    public static final int ENCODED_BYTES = 29;
+    private static final int LIMBS = 8;
+
+    private Deal() {}
+
+    // Writes the order for deal number n into order[0..52).
+    public static void shuffle(long n, byte[] order) {
+        // Inside-out form: card i goes to a random slot j <= i, whose card moves up to i.
+        // Nothing needs initialising first and each step is one load and two stores.
+        long state = n;
+        order[0] = 0;
+        for (int i = 1; i < CARDS; ) {
+            long z = (state += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            i = place(order, i, (int) ((z & 0xFFFFFFFFL) * (i + 1) >>> 32));
+            if (i < CARDS) i = place(order, i, (int) ((z >>> 32) * (i + 1) >>> 32));
+        }
+    }
+
+    private static int place(byte[] order, int i, int j) {
+        order[i] = order[j];
+        order[j] = (byte) i;
+        return i + 1;
+    }
+
+    // Rank of the permutation (Lehmer code read as one mixed-radix number), big-endian.
+    public static byte[] encode(byte[] order) {
+        byte[] out = new byte[ENCODED_BYTES];
+        encode(order, out);
+        return out;
+    }
+
+    public static void encode(byte[] order, byte[] out) {
+        encode(order, out, newScratch());
+    }
+
+    // Working space for encode()/decode(); one per thread.
+    public static long[] newScratch() {
+        return new long[LIMBS];
+    }
+
+    public static void encode(byte[] order, byte[] out, long[] limb) {
+        // 256-bit accumulator in 32-bit limbs, most significant first
+        Arrays.fill(limb, 0);
+        long left = (1L << CARDS) - 1;
+        for (int i = 0; i < CARDS; i++) {
+            int c = order[i];
+            if (c < 0 || c >= CARDS || (left & 1L << c) == 0) throw new IllegalArgumentException("Not a permutation of 0-51");
+            // Cards still unplaced that sort below c
+            long carry = Long.bitCount(left & ((1L << c) - 1));
+            left &= ~(1L << c);
+            for (int k = LIMBS - 1; k >= 0; k--) {
+                long v = limb[k] * (CARDS - i) + carry;
+                limb[k] = v & 0xFFFFFFFFL;
+                carry = v >>> 32;
+            }
+        }
+        for (int b = 0; b < ENCODED_BYTES; b++) {
+            int bit = (ENCODED_BYTES - 1 - b) * 8;
+            out[b] = (byte) (limb[LIMBS - 1 - bit / 32] >>> (bit % 32));
+        }
+    }
+
+    // Inverse of encode; writes the order into order[0..52).
+    public static void decode(byte[] encoded, byte[] order) {
+        decode(encoded, order, newScratch());
+    }
+
+    public static void decode(byte[] encoded, byte[] order, long[] limb) {
+        if (encoded.length != ENCODED_BYTES) throw new IllegalArgumentException("Expected " + ENCODED_BYTES + " bytes");
+        Arrays.fill(limb, 0);
+        for (int b = 0; b < ENCODED_BYTES; b++) {
+            int bit = (ENCODED_BYTES - 1 - b) * 8;
+            limb[LIMBS - 1 - bit / 32] |= (encoded[b] & 0xFFL) << (bit % 32);
+        }
+        // Peel off the digits from the last (radix 1) to the first (radix 52), keeping
+        // each in the low six bits of order[] until the cards are chosen below
+        for (int i = CARDS - 1; i >= 0; i--) {
+            long rem = 0;
+            for (int k = 0; k < LIMBS; k++) {
+                long cur = rem << 32 | limb[k];
+                limb[k] = cur / (CARDS - i);
+                rem = cur % (CARDS - i);
+            }
+            order[i] = (byte) rem;
+        }
+        for (long v : limb) if (v != 0) throw new IllegalArgumentException("Not a valid deal encoding");
+        long left = (1L << CARDS) - 1;
+        for (int i = 0; i < CARDS; i++) {
+            // The order[i]-th smallest card still unplaced
+            long m = left;
+            for (int k = order[i]; k > 0; k--) m &= m - 1;
+            int c = Long.numberOfTrailingZeros(m);
+            order[i] = (byte) c;
+            left &= ~(1L << c);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package Solitaire;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Solves a range of numbered deals (see Deal) on every core and records the outcome
+// of each, then compacts the wins into a WinnableIndex.
+//
+// Usage: DealSurvey run --out=results.bin [--first=0] [--count=1000000] [--threads=N]
+//                       [--nodes=200000] [--ms=1000] [--table-bits=20]
+//        DealSurvey compact --in=results.bin --out=winnable.idx
+//
+// Each worker has its own sequential Solver; parallelism comes from solving many deals
+// at once, which scales better than splitting one search. Deals that hit the node or
+// time limit are recorded as unknown rather than retried.
+//
+// The results file is append-only: a header (int magic, int version) followed by
+// fixed-size records (long seed, long nodes, int solution length, int Solver.Result
+// ordinal), in completion order. Workers append in batches, so a killed run loses at
+// most the last batch per worker; running again with the same file skips every seed
+// already recorded and drops a torn final record.
+public final class DealSurvey {
+    // Version 2: seeds are Deal numbers (version 1 used java.util.Random shuffles)
+    public static final int MAGIC = 0x4B535256, VERSION = 2, HEADER = 8, RECORD = 24;
+    private static final int BATCH = 256;
+    private static final long FLUSH_NANOS = 2_000_000_000L, REPORT_NANOS = 5_000_000_000L;
+
+    private final FileChannel out;
+    private final long first, count, maxNodes, budgetNanos;
+    private final int tableBits;
+    private final BitSet done;
+    private final AtomicLong next = new AtomicLong();
+    private final LongAdder[] results = new LongAdder[Solver.Result.values().length];
+    private final LongAdder nodes = new LongAdder();
+
+    private DealSurvey(FileChannel out, long first, long count, BitSet done, long maxNodes, long budgetNanos, int tableBits) {
+        this.out = out;
+        this.first = first;
+        this.count = count;
+        this.done = done;
+        this.maxNodes = maxNodes;
+        this.budgetNanos = budgetNanos;
+        this.tableBits = tableBits;
+        for (int i = 0; i < results.length; i++) results[i] = new LongAdder();
+    }
+
+    // Opens (or creates) the results file, marks seeds in [first, first + count) that are
+    // already recorded, and leaves the channel positioned at the end of the last whole record.
+    private static FileChannel openResults(Path file, long first, long count, BitSet done) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (ch.size() < HEADER) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION);
+            h.flip();
+            ch.truncate(0);
+            ch.write(h, 0);
+        } else {
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            ch.read(h, 0);
+            if (h.getInt(0) != MAGIC || h.getInt(4) != VERSION) {
+                ch.close();
+                throw new IOException(file + ": not a version " + VERSION + " survey results file");
+            }
+        }
+        long end = HEADER + (ch.size() - HEADER) / RECORD * RECORD;
+        ch.truncate(end);
+        ByteBuffer buf = ByteBuffer.allocateDirect(RECORD * 4096);
+        for (long pos = HEADER; pos < end; ) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), end - pos));
+            while (buf.hasRemaining()) ch.read(buf, pos + buf.position());
+            pos += buf.limit();
+            buf.flip();
+            while (buf.remaining() >= RECORD) {
+                long seed = buf.getLong();
+                buf.position(buf.position() + RECORD - 8);
+                if (seed >= first && seed - first < count) done.set((int) (seed - first));
+            }
+        }
+        ch.position(end);
+        return ch;
+    }
+
+    private void work() {
+        Solver solver = new Solver(tableBits, null);
+        Klondike game = new Klondike();
+        ByteBuffer batch = ByteBuffer.allocateDirect(RECORD * BATCH);
+        long flushed = System.nanoTime();
+        for (long i; (i = next.getAndIncrement()) < count; ) {
+            if (done.get((int) i)) continue;
+            long seed = first + i;
+            game.deal(seed);
+            Solver.Result r = solver.solve(game, maxNodes, budgetNanos);
+            results[r.ordinal()].increment();
+            nodes.add(solver.getNodes());
+            batch.putLong(seed).putLong(solver.getNodes()).putInt(solver.getSolutionLength()).putInt(r.ordinal());
+            if (!batch.hasRemaining() || System.nanoTime() - flushed > FLUSH_NANOS) {
+                flush(batch);
+                flushed = System.nanoTime();
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(ByteBuffer batch) {
+        batch.flip();
+        try {
+            synchronized (out) {
+                while (batch.hasRemaining()) out.write(batch);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not append survey results", ex);
+        }
+        batch.clear();
+    }
+
+    private long solved() {
+        long n = 0;
+        for (LongAdder a : results) n += a.sum();
+        return n;
+    }
+
+    private void run(int threads) throws InterruptedException, IOException {
+        long pending = count - done.cardinality(), start = System.nanoTime();
+        System.out.printf("%d deals from seed %d, %d already recorded, %d to solve on %d threads%n",
+                count, first, count - pending, pending, threads);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(this::work, "survey-" + t);
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            while (w.isAlive()) {
+                w.join(REPORT_NANOS / 1_000_000);
+                if (w.isAlive()) report(pending, start);
+            }
+        }
+        out.force(false);
+        report(pending, start);
+    }
+
+    private void report(long pending, long start) {
+        double secs = (System.nanoTime() - start) / 1e9;
+        long n = solved();
+        double rate = n / Math.max(secs, 1e-9);
+        System.out.printf("%d/%d  won %d  lost %d  unknown %d  %.0f deals/s  %.0f nodes/s  eta %.0fs%n", n, pending,
+                results[0].sum(), results[1].sum(), results[2].sum(), rate, nodes.sum() / Math.max(secs, 1e-9),
+                rate > 0 ? (pending - n) / rate : 0.0);
+    }
+
+    // Collects the won seeds from a results file into a sorted, de-duplicated index.
+    static void compact(Path in, Path index) throws IOException {
+        long[] seeds = new long[1024];
+        int n = 0;
+        long records = 0;
+        try (FileChannel ch = FileChannel.open(in, StandardOpenOption.READ)) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            ch.read(h, 0);
+            if (ch.size() < HEADER || h.getInt(0) != MAGIC || h.getInt(4) != VERSION)
+                throw new IOException(in + ": not a version " + VERSION + " survey results file");
+            long end = HEADER + (ch.size() - HEADER) / RECORD * RECORD;
+            ByteBuffer buf = ByteBuffer.allocateDirect(RECORD * 4096);
+            for (long pos = HEADER; pos < end; ) {
+                buf.clear();
+                buf.limit((int) Math.min(buf.capacity(), end - pos));
+                while (buf.hasRemaining()) ch.read(buf, pos + buf.position());
+                pos += buf.limit();
+                buf.flip();
+                while (buf.remaining() >= RECORD) {
+                    long seed = buf.getLong();
+                    buf.getLong();
+                    buf.getInt();
+                    int result = buf.getInt();
+                    records++;
+                    if (result != Solver.Result.WIN.ordinal()) continue;
+                    if (n == seeds.length) seeds = Arrays.copyOf(seeds, n * 2);
+                    seeds[n++] = seed;
+                }
+            }
+        }
+        Arrays.sort(seeds, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++)
+            if (unique == 0 || seeds[i] != seeds[unique - 1]) seeds[unique++] = seeds[i];
+        WinnableIndex.write(index, seeds, unique);
+        System.out.printf("%d records, %d winnable deals written to %s%n", records, unique, index);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) throw new IllegalArgumentException("Expected run or compact");
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String a = args[i];
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value, got " + a);
+            opts.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        switch (args[0]) {
+            case "run": {
+                long first = Long.parseLong(opts.getOrDefault("first", "0"));
+                long count = Long.parseLong(opts.getOrDefault("count", "1000000"));
+                if (count < 0 || count > Integer.MAX_VALUE) throw new IllegalArgumentException("--count must be 0.." + Integer.MAX_VALUE);
+                int threads = Integer.parseInt(opts.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+                long maxNodes = Long.parseLong(opts.getOrDefault("nodes", "200000"));
+                long budget = Long.parseLong(opts.getOrDefault("ms", "1000")) * 1_000_000;
+                int bits = Integer.parseInt(opts.getOrDefault("table-bits", "20"));
+                BitSet done = new BitSet();
+                try (FileChannel ch = openResults(Paths.get(required(opts, "out")), first, count, done)) {
+                    new DealSurvey(ch, first, count, done, maxNodes, budget, bits).run(threads);
+                }
+                break;
+            }
+            case "compact":
+                compact(Paths.get(required(opts, "in")), Paths.get(required(opts, "out")));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + args[0]);
+        }
+    }
+
+    private static String required(Map<String, String> opts, String name) {
+        String v = opts.get(name);
+        if (v == null) throw new IllegalArgumentException("Missing --" + name);
+        return v;
+    }
+}
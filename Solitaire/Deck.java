@@ -1,26 +1,33 @@
 package Solitaire;
-import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
+// The 52 cards of one numbered deal (see Deal), handed out in deal order.
 public class Deck {
-    private final List<Card> cards = new ArrayList<>();
+    private final byte[] order = new byte[Deal.CARDS];
+    private final long number;
+    private int drawn;
 
+    // A random deal; its number is still available to show or replay it.
     public Deck() {
-        for (Card.Suit suit : Card.Suit.values())
-            for (int r = 1; r <= 13; r++)
-                cards.add(new Card(suit, r));
-        shuffle();
+        this(ThreadLocalRandom.current().nextLong());
     }
 
-    public void shuffle() {
-        Collections.shuffle(cards);
+    // Deal #number: same number, same deal.
+    public Deck(long number) {
+        this.number = number;
+        Deal.shuffle(number, order);
+    }
+
+    public long getNumber() {
+        return number;
     }
 
     public Card draw() {
-        if (cards.isEmpty()) return null;
-        return cards.remove(cards.size() - 1);
+        if (drawn == order.length) return null;
+        return Card.of(order[drawn++]);
     }
 
     public boolean isEmpty() {
-        return cards.isEmpty();
+        return drawn == order.length;
     }
 }
@@ -0,0 +1,175 @@
+package Solitaire;
+import javax.swing.SwingUtilities;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Works out the best next move for the position on screen without touching the EDT.
+//
+// update() is the only call the EDT makes per move: it copies the position, cancels
+// whatever search is running and wakes the hint thread. That thread first looks the
+// position up on the winning line it found last time, which answers at once as long as
+// the player keeps to it (in any order that revisits its positions). Otherwise it runs
+// the Solver for at most the latency budget, across a low-priority pool that leaves a
+// core free for painting, and falls back to the best-scoring legal move when the search
+// does not finish. Each answer goes to the listener on the EDT, unless the player has
+// moved again since the position it answers.
+final class HintService {
+    interface Listener {
+        // move is -1 when nothing can be played; outcome is WIN when move is on a
+        // winning line, LOSS when the position cannot be won, otherwise UNKNOWN.
+        void hint(int move, Solver.Result outcome);
+    }
+
+    static final long DEFAULT_BUDGET_NANOS = 150_000_000L;
+    private static final int TABLE_BITS = 20;
+
+    private static final class Request {
+        final Klondike position = new Klondike();
+        final long generation;
+
+        Request(Klondike position, long generation) {
+            this.position.copyFrom(position);
+            this.generation = generation;
+        }
+    }
+
+    private final Listener listener;
+    private final long budgetNanos;
+    private final ForkJoinPool pool;
+    private final Solver solver;
+    private final Thread thread;
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+    // Written on the EDT only
+    private volatile long generation;
+    private volatile boolean closed;
+    // Hint thread only: the last winning line and the exactHash() of the position before
+    // each move (hash() would match the line with its columns in another order)
+    private int[] line = new int[0];
+    private long[] lineHashes = new long[0];
+    private final int[] scratch = new int[Klondike.MAX_MOVES];
+
+    HintService(Listener listener, long budgetNanos) {
+        this.listener = listener;
+        this.budgetNanos = budgetNanos;
+        int cores = Runtime.getRuntime().availableProcessors();
+        pool = cores > 2 ? new ForkJoinPool(cores - 1, HintService::newWorker, null, false) : null;
+        solver = new Solver(TABLE_BITS, pool);
+        thread = new Thread(this::run, "solitaire-hints");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("solitaire-hints-" + t.getPoolIndex());
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    }
+
+    // Called on the EDT after every change to the position; any earlier answer is stale.
+    void update(Klondike position) {
+        pending.set(new Request(position, ++generation));
+        solver.cancel();
+        LockSupport.unpark(thread);
+    }
+
+    // Stops the thread and pool for good; a closed service is not restarted.
+    void close() {
+        closed = true;
+        solver.cancel();
+        LockSupport.unpark(thread);
+        if (pool != null) pool.shutdownNow();
+    }
+
+    private void run() {
+        while (!closed) {
+            Request r = pending.getAndSet(null);
+            if (r == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            int i = onLine(r.position.exactHash());
+            if (i >= 0 && r.position.isLegal(line[i])) {
+                publish(r, line[i], Solver.Result.WIN);
+                continue;
+            }
+            // cancel() only stops a solve already running, so the solve also checks the generation itself
+            Solver.Result outcome = solver.solve(r.position, Long.MAX_VALUE, budgetNanos, () -> generation != r.generation);
+            // A newer position arrived (and probably cancelled this search)
+            if (pending.get() != null) continue;
+            if (outcome == Solver.Result.WIN) {
+                recordLine(r.position);
+                publish(r, line[0], outcome);
+            } else {
+                publish(r, bestMove(r.position, scratch), outcome);
+            }
+        }
+    }
+
+    private void publish(Request r, int move, Solver.Result outcome) {
+        SwingUtilities.invokeLater(() -> {
+            if (r.generation == generation && !closed) listener.hint(move, outcome);
+        });
+    }
+
+    private int onLine(long hash) {
+        for (int i = 0; i < line.length; i++)
+            if (lineHashes[i] == hash) return i;
+        return -1;
+    }
+
+    // Replays the solver's line over position (the request's own copy) to hash each step.
+    private void recordLine(Klondike position) {
+        int n = solver.getSolutionLength();
+        line = new int[n];
+        lineHashes = new long[n];
+        for (int i = 0; i < n; i++) {
+            line[i] = solver.getSolutionMove(i);
+            lineHashes[i] = position.exactHash();
+            position.apply(line[i]);
+        }
+    }
+
+    // Best legal move by the solver's ordering; -1 if none. Moves that only shuffle face-up
+    // cards between piles rank below drawing, or the hint would send a run back and forth.
+    static int bestMove(Klondike k, int[] scratch) {
+        int n = k.moves(scratch), best = -1, bestScore = -1;
+        for (int i = 0; i < n; i++) {
+            int m = scratch[i], from = Klondike.from(m), to = Klondike.to(m), score;
+            if (from == Klondike.STOCK) score = 2;
+            else if (from == Klondike.WASTE) score = to == Klondike.STOCK ? 1 : to >= Klondike.FOUNDATION ? 800 : 400;
+            else score = Solver.score(k, m) < 300 ? 0 : Solver.score(k, m);
+            if (score > bestScore) {
+                best = m;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // Every tableau card is face up: the game is won by playing the lowest card left to
+    // its foundation over and over, cycling the stock to reach it when needed.
+    static boolean canFinish(Klondike k) {
+        if (k.isWon()) return false;
+        for (int p = 0; p < Klondike.COLUMNS; p++)
+            for (int i = 0; i < k.size(p); i++)
+                if (!k.isFaceUp(k.card(p, i))) return false;
+        return true;
+    }
+
+    // Next move of the finish that canFinish() promises, or -1 once won.
+    static int finishingMove(Klondike k) {
+        for (int p = 0; p <= Klondike.WASTE; p++) {
+            if (p == Klondike.FOUNDATION) p = Klondike.WASTE;
+            int c = k.top(p);
+            if (c >= 0 && Klondike.rank(c) == k.size(Klondike.FOUNDATION + Klondike.suit(c)) + 1)
+                return Klondike.move(p, Klondike.FOUNDATION + Klondike.suit(c), 1);
+        }
+        if (k.size(Klondike.STOCK) > 0) return Klondike.move(Klondike.STOCK, Klondike.WASTE, 1);
+        if (k.size(Klondike.WASTE) > 0) return Klondike.move(Klondike.WASTE, Klondike.STOCK, k.size(Klondike.WASTE));
+        return -1;
+    }
+}
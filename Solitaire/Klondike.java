@@ -0,0 +1,361 @@
+package Solitaire;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Klondike rules and state with no Swing and no per-move allocation, for the UI as
+// well as solvers and analysis. Cards are byte ids 0-51 (suit * 13 + rank - 1, suits
+// in Card.Suit order). Every pile lives in one byte array; foundations are built by
+// suit, so only their sizes are stored. Which cards are face up is one bit per id.
+//
+// Piles are numbered 0-6 for the tableau, 7-10 for the foundations (clubs, diamonds,
+// hearts, spades), then stock and waste. A move is an int holding source, target and
+// card count; drawing is stock to waste and recycling is waste back to stock. apply()
+// returns the move with FLIPPED set if it turned a tableau card face up, and undo()
+// takes that returned value.
+//
+// hash() is a Zobrist hash kept up to date by every move. Tableau columns are hashed
+// on their own and combined by addition, so positions that differ only in the order of
+// the columns hash the same; exactHash() tells those apart.
+public final class Klondike {
+    public static final int TABLEAU = 0, FOUNDATION = 7, STOCK = 11, WASTE = 12, PILES = 13, COLUMNS = 7;
+    public static final int CARDS = 52, RANKS = 13, SUITS = 4;
+    // Upper bound on legal moves in any position, for sizing moves() buffers
+    public static final int MAX_MOVES = 96;
+    public static final int FLIPPED = 1 << 16;
+    private static final int TABLEAU_CAP = 20, STOCK_CAP = 24;
+    private static final int STOCK_BASE = COLUMNS * TABLEAU_CAP, WASTE_BASE = STOCK_BASE + STOCK_CAP;
+
+    private static final long[] TAB_KEYS = new long[TABLEAU_CAP * CARDS], FACE_KEYS = new long[CARDS];
+    private static final long[] STOCK_KEYS = new long[STOCK_CAP * CARDS], WASTE_KEYS = new long[STOCK_CAP * CARDS];
+    private static final long[] FOUNDATION_KEYS = new long[SUITS * (RANKS + 1)], CYCLE_KEYS = new long[STOCK_CAP * CARDS];
+    static {
+        SplittableRandom rnd = new SplittableRandom(0x4B4C4F4E44494B45L);
+        for (long[] keys : new long[][] {TAB_KEYS, FACE_KEYS, STOCK_KEYS, WASTE_KEYS, FOUNDATION_KEYS, CYCLE_KEYS})
+            for (int i = 0; i < keys.length; i++) keys[i] = rnd.nextLong();
+    }
+
+    // Masks over card ids: all cards of each rank, red cards, black cards, kings
+    private static final long[] RANK_MASK = new long[RANKS];
+    private static final long RED = ((1L << 2 * RANKS) - 1) << RANKS, BLACK = ((1L << CARDS) - 1) & ~RED;
+    private static final long KINGS;
+    static {
+        for (int r = 1; r <= RANKS; r++)
+            for (int s = 0; s < SUITS; s++) RANK_MASK[r - 1] |= 1L << id(s, r);
+        KINGS = RANK_MASK[RANKS - 1];
+    }
+
+    private final byte[] cells = new byte[WASTE_BASE + STOCK_CAP];
+    private final byte[] size = new byte[PILES];
+    private final long[] columnHash = new long[COLUMNS];
+    private long faceUp, hash, talonHash;
+    // Scratch for moves(): cell index of each face-up tableau card
+    private final byte[] at = new byte[CARDS];
+    // Scratch for numbered deals
+    private final byte[] order = new byte[CARDS];
+
+    public static int suit(int card) { return card / RANKS; }
+    public static int rank(int card) { return card % RANKS + 1; }
+    public static boolean isRed(int card) { return card >= RANKS && card < 3 * RANKS; }
+    public static int id(int suit, int rank) { return suit * RANKS + rank - 1; }
+
+    public static int move(int from, int to, int count) { return from | to << 4 | count << 8; }
+    public static int from(int move) { return move & 15; }
+    public static int to(int move) { return move >>> 4 & 15; }
+    public static int count(int move) { return move >>> 8 & 255; }
+
+    // Deals in the order the cards are given: columns left to right, column i taking
+    // i + 1 cards with the last face up, and the remaining 24 onto the stock (last on top).
+    public void deal(byte[] order) {
+        if (order.length != CARDS) throw new IllegalArgumentException("Expected " + CARDS + " cards");
+        long seen = 0;
+        for (byte c : order) {
+            if (c < 0 || c >= CARDS || (seen & 1L << c) != 0) throw new IllegalArgumentException("Not a permutation of 0-51");
+            seen |= 1L << c;
+        }
+        Arrays.fill(size, (byte) 0);
+        Arrays.fill(columnHash, 0);
+        faceUp = hash = talonHash = 0;
+        for (int f = 0; f < SUITS; f++) hash ^= FOUNDATION_KEYS[f * (RANKS + 1)];
+        int k = 0;
+        for (int i = 0; i < COLUMNS; i++)
+            for (int j = 0; j <= i; j++) {
+                int c = order[k++];
+                if (j == i) faceUp |= 1L << c;
+                pushColumn(i, c);
+            }
+        while (k < CARDS) pushStock(order[k++]);
+    }
+
+    // Deals the deck's cards in the order it hands them out; the deck ends up empty.
+    public void deal(Deck deck) {
+        for (int i = 0; i < CARDS; i++) order[i] = (byte) deck.draw().id;
+        deal(order);
+    }
+
+    // Deals deal #number (see Deal) without allocating.
+    public void deal(long number) {
+        Deal.shuffle(number, order);
+        deal(order);
+    }
+
+    public void copyFrom(Klondike o) {
+        System.arraycopy(o.cells, 0, cells, 0, cells.length);
+        System.arraycopy(o.size, 0, size, 0, PILES);
+        System.arraycopy(o.columnHash, 0, columnHash, 0, COLUMNS);
+        faceUp = o.faceUp;
+        hash = o.hash;
+        talonHash = o.talonHash;
+    }
+
+    public int size(int pile) { return size[pile]; }
+
+    // Card at position i of the pile, 0 being the bottom.
+    public int card(int pile, int i) {
+        if (pile >= FOUNDATION && pile < STOCK) return id(pile - FOUNDATION, i + 1);
+        return cells[base(pile) + i];
+    }
+
+    // Top card of the pile, or -1 if it is empty.
+    public int top(int pile) {
+        int n = size[pile];
+        return n == 0 ? -1 : card(pile, n - 1);
+    }
+
+    public boolean isFaceUp(int card) { return (faceUp & 1L << card) != 0; }
+
+    public boolean isWon() {
+        return size[FOUNDATION] + size[FOUNDATION + 1] + size[FOUNDATION + 2] + size[FOUNDATION + 3] == CARDS;
+    }
+
+    public long hash() {
+        return tableauHash() ^ talonHash;
+    }
+
+    // Like hash(), but each column's hash is mixed with its index, so the same columns in
+    // another order hash differently. For anything that keeps moves, whose pile numbers
+    // only fit the one arrangement.
+    public long exactHash() {
+        long h = hash ^ talonHash;
+        for (int i = 0; i < COLUMNS; i++) h += mix(columnHash[i] + (i + 1) * 0x9E3779B97F4A7C15L);
+        return h;
+    }
+
+    private long tableauHash() {
+        long h = hash;
+        for (int i = 0; i < COLUMNS; i++) h += mix(columnHash[i]);
+        return h;
+    }
+
+    // Like hash(), but positions that differ only in how far the stock has been drawn
+    // through hash the same; with draw one and unlimited passes they offer the same
+    // cards, so they can be won (or not) alike. Drawing and recycling keep the cards in
+    // one cyclic order (waste bottom to top, then stock top to bottom), hashed here from
+    // its smallest card onwards.
+    public long hashIgnoringDraws() {
+        int n = size[WASTE] + size[STOCK], anchor = 0, min = CARDS;
+        for (int i = 0; i < n; i++) {
+            int c = talonCard(i);
+            if (c < min) {
+                min = c;
+                anchor = i;
+            }
+        }
+        long h = tableauHash();
+        for (int i = 0; i < n; i++) h ^= CYCLE_KEYS[i * CARDS + talonCard((anchor + i) % n)];
+        return h;
+    }
+
+    // Card i of the cycle: the waste from the bottom, then the stock from the top.
+    private int talonCard(int i) {
+        int w = size[WASTE];
+        return i < w ? cells[WASTE_BASE + i] : cells[STOCK_BASE + size[STOCK] - 1 - (i - w)];
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int base(int pile) {
+        return pile < FOUNDATION ? pile * TABLEAU_CAP : pile == STOCK ? STOCK_BASE : WASTE_BASE;
+    }
+
+    public boolean isLegal(int move) {
+        int from = from(move), to = to(move), count = count(move);
+        if (from >= PILES || to >= PILES || from == to || count == 0 || count > size[from]) return false;
+        if (from == STOCK) return to == WASTE && count == 1;
+        if (to == STOCK) return from == WASTE && size[STOCK] == 0 && count == size[WASTE];
+        if (to == WASTE || (from >= FOUNDATION && count != 1)) return false;
+        int c = card(from, size[from] - count);
+        if (!isFaceUp(c)) return false;
+        if (to >= FOUNDATION) return count == 1 && suit(c) == to - FOUNDATION && rank(c) == size[to] + 1;
+        return fitsColumn(to, c);
+    }
+
+    private boolean fitsColumn(int column, int c) {
+        int t = top(column);
+        if (t < 0) return rank(c) == RANKS;
+        return isRed(t) != isRed(c) && rank(t) == rank(c) + 1;
+    }
+
+    // Fills out with every legal move (foundation moves first) and returns how many there are.
+    public int moves(int[] out) {
+        int n = 0, w = top(WASTE);
+        for (int i = 0; i < COLUMNS; i++) {
+            int c = top(i);
+            if (c >= 0 && rank(c) == size[FOUNDATION + suit(c)] + 1) out[n++] = move(i, FOUNDATION + suit(c), 1);
+        }
+        if (w >= 0 && rank(w) == size[FOUNDATION + suit(w)] + 1) out[n++] = move(WASTE, FOUNDATION + suit(w), 1);
+        // Index every face-up tableau card by position; only those can start a column move
+        long up = 0;
+        for (int col = 0; col < COLUMNS; col++)
+            for (int i = col * TABLEAU_CAP + size[col] - 1; i >= col * TABLEAU_CAP && isFaceUp(cells[i]); i--) {
+                up |= 1L << cells[i];
+                at[cells[i]] = (byte) i;
+            }
+        for (int to = 0; to < COLUMNS; to++) {
+            int t = top(to);
+            long fits = t < 0 ? up & KINGS : rank(t) == 1 ? 0 : up & (isRed(t) ? BLACK : RED) & RANK_MASK[rank(t) - 2];
+            for (; fits != 0; fits &= fits - 1) {
+                int i = at[Long.numberOfTrailingZeros(fits)] & 0xFF, from = i / TABLEAU_CAP;
+                if (from != to) out[n++] = move(from, to, size[from] - i % TABLEAU_CAP);
+            }
+            if (w >= 0 && fitsColumn(to, w)) out[n++] = move(WASTE, to, 1);
+            for (int s = 0; s < SUITS; s++) {
+                int c = top(FOUNDATION + s);
+                if (c >= 0 && fitsColumn(to, c)) out[n++] = move(FOUNDATION + s, to, 1);
+            }
+        }
+        if (size[STOCK] > 0) out[n++] = move(STOCK, WASTE, 1);
+        else if (size[WASTE] > 0) out[n++] = move(WASTE, STOCK, size[WASTE]);
+        return n;
+    }
+
+    // Applies a legal move; the result (possibly with FLIPPED added) is what undo() needs.
+    public int apply(int move) {
+        int from = from(move), to = to(move), count = count(move);
+        if (from == STOCK) {
+            int c = popStock();
+            faceUp |= 1L << c;
+            pushWaste(c);
+            return move;
+        }
+        if (to == STOCK) {
+            while (size[WASTE] > 0) {
+                int c = popWaste();
+                faceUp &= ~(1L << c);
+                pushStock(c);
+            }
+            return move;
+        }
+        transfer(from, to, count);
+        if (from < FOUNDATION && size[from] > 0) {
+            int t = top(from);
+            if (!isFaceUp(t)) {
+                setColumnFace(from, size[from] - 1, t, true);
+                return move | FLIPPED;
+            }
+        }
+        return move;
+    }
+
+    // Reverts the value apply() returned; moves must be undone newest first.
+    public void undo(int move) {
+        int from = from(move), to = to(move), count = count(move);
+        if (from == STOCK) {
+            int c = popWaste();
+            faceUp &= ~(1L << c);
+            pushStock(c);
+            return;
+        }
+        if (to == STOCK) {
+            while (size[STOCK] > 0) {
+                int c = popStock();
+                faceUp |= 1L << c;
+                pushWaste(c);
+            }
+            return;
+        }
+        if ((move & FLIPPED) != 0) setColumnFace(from, size[from] - 1, top(from), false);
+        transfer(to, from, count);
+    }
+
+    // Moves the top count cards from one pile to another, keeping their order.
+    private void transfer(int from, int to, int count) {
+        if (from < FOUNDATION && to < FOUNDATION) {
+            int src = from * TABLEAU_CAP + size[from] - count;
+            for (int i = 0; i < count; i++) pushColumn(to, cells[src + i]);
+            for (int i = 0; i < count; i++) popColumn(from);
+            return;
+        }
+        int c = pop(from);
+        push(to, c);
+    }
+
+    private int pop(int pile) {
+        if (pile < FOUNDATION) return popColumn(pile);
+        if (pile == WASTE) return popWaste();
+        int s = pile - FOUNDATION, n = size[pile];
+        hash ^= FOUNDATION_KEYS[s * (RANKS + 1) + n] ^ FOUNDATION_KEYS[s * (RANKS + 1) + n - 1];
+        size[pile]--;
+        return id(s, n);
+    }
+
+    private void push(int pile, int c) {
+        if (pile < FOUNDATION) pushColumn(pile, c);
+        else if (pile == WASTE) pushWaste(c);
+        else {
+            int s = pile - FOUNDATION, n = size[pile];
+            hash ^= FOUNDATION_KEYS[s * (RANKS + 1) + n] ^ FOUNDATION_KEYS[s * (RANKS + 1) + n + 1];
+            size[pile]++;
+        }
+    }
+
+    private void pushColumn(int col, int c) {
+        int i = size[col]++;
+        cells[col * TABLEAU_CAP + i] = (byte) c;
+        columnHash[col] ^= columnKey(i, c);
+    }
+
+    private int popColumn(int col) {
+        int i = --size[col], c = cells[col * TABLEAU_CAP + i];
+        columnHash[col] ^= columnKey(i, c);
+        return c;
+    }
+
+    private long columnKey(int i, int c) {
+        return TAB_KEYS[i * CARDS + c] ^ (isFaceUp(c) ? FACE_KEYS[c] : 0);
+    }
+
+    private void setColumnFace(int col, int i, int c, boolean up) {
+        columnHash[col] ^= columnKey(i, c);
+        if (up) faceUp |= 1L << c;
+        else faceUp &= ~(1L << c);
+        columnHash[col] ^= columnKey(i, c);
+    }
+
+    private void pushStock(int c) {
+        int i = size[STOCK]++;
+        cells[STOCK_BASE + i] = (byte) c;
+        talonHash ^= STOCK_KEYS[i * CARDS + c];
+    }
+
+    private int popStock() {
+        int i = --size[STOCK], c = cells[STOCK_BASE + i];
+        talonHash ^= STOCK_KEYS[i * CARDS + c];
+        return c;
+    }
+
+    private void pushWaste(int c) {
+        int i = size[WASTE]++;
+        cells[WASTE_BASE + i] = (byte) c;
+        talonHash ^= WASTE_KEYS[i * CARDS + c];
+    }
+
+    private int popWaste() {
+        int i = --size[WASTE], c = cells[WASTE_BASE + i];
+        talonHash ^= WASTE_KEYS[i * CARDS + c];
+        return c;
+    }
+}
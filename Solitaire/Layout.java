@@ -0,0 +1,60 @@
+package Solitaire;
+
+// Where every pile and card of a Klondike position sits on the table. Painting,
+// picking cards up and dropping them all ask here, so they cannot disagree. Pile
+// origins are fixed and worked out once; the rest follows from the current pile sizes,
+// so the geometry is always up to date and every query is a little arithmetic with no
+// scanning and no allocation.
+//
+// Edges are inclusive: a card covers x..x + CARD_W and y..y + CARD_H, like its outline.
+final class Layout {
+    static final int CARD_W = 60, CARD_H = 90, FAN = 35;
+    static final int PILE_SPACING = 80, TABLEAU_Y = 150, FOUNDATION_Y = 20, STOCK_X = 20;
+    static final int WIDTH = Klondike.COLUMNS * PILE_SPACING + 100, HEIGHT = 600;
+    private static final int[] X = new int[Klondike.PILES];
+
+    static {
+        for (int i = 0; i < Klondike.COLUMNS; i++) X[i] = STOCK_X + i * PILE_SPACING;
+        // Top row, in PILE_SPACING steps: stock, waste, a gap, then the foundations
+        X[Klondike.STOCK] = STOCK_X;
+        X[Klondike.WASTE] = STOCK_X + PILE_SPACING;
+        for (int i = 0; i < Klondike.SUITS; i++) X[Klondike.FOUNDATION + i] = STOCK_X + (i + 3) * PILE_SPACING;
+    }
+
+    private Layout() {}
+
+    static int x(int pile) { return X[pile]; }
+
+    // Top edge of card i of pile; only the tableau fans its cards out.
+    static int y(int pile, int i) {
+        return pile < Klondike.COLUMNS ? TABLEAU_Y + i * FAN : FOUNDATION_Y;
+    }
+
+    // Height of cards first to top of pile, or of the empty slot.
+    static int height(Klondike game, int pile, int first) {
+        if (pile >= Klondike.COLUMNS) return CARD_H;
+        return Math.max(0, game.size(pile) - 1 - first) * FAN + CARD_H;
+    }
+
+    // Pile whose slot or fanned-out cards cover (px, py), or -1.
+    static int pileAt(Klondike game, int px, int py) {
+        int dx = px - STOCK_X;
+        if (dx < 0 || dx % PILE_SPACING > CARD_W) return -1;
+        int slot = dx / PILE_SPACING;
+        if (py >= FOUNDATION_Y && py <= FOUNDATION_Y + CARD_H) {
+            if (slot == 0) return Klondike.STOCK;
+            if (slot == 1) return Klondike.WASTE;
+            return slot >= 3 && slot < 3 + Klondike.SUITS ? Klondike.FOUNDATION + slot - 3 : -1;
+        }
+        if (slot < Klondike.COLUMNS && py >= TABLEAU_Y && py <= TABLEAU_Y + height(game, slot, 0)) return slot;
+        return -1;
+    }
+
+    // Index of the topmost card of pile covering height py (which pileAt placed on the
+    // pile), or -1 if the pile is empty.
+    static int cardAt(Klondike game, int pile, int py) {
+        int n = game.size(pile);
+        if (pile >= Klondike.COLUMNS || n == 0) return n - 1;
+        return Math.min(n - 1, (py - TABLEAU_Y) / FAN);
+    }
+}
@@ -0,0 +1,33 @@
+package Solitaire;
+import java.util.Arrays;
+
+// Undo/redo history as the values Klondike.apply() returned, one int per move (draws,
+// recycles and tableau flips included), so stepping either way is one apply or undo
+// and a long session costs four bytes a move. Recording a new move after some undos
+// drops the moves that could have been redone.
+final class MoveLog {
+    private int[] moves = new int[256];
+    private int size, position;
+
+    // Applies move to game and records it; returns what apply() returned.
+    int play(Klondike game, int move) {
+        if (position == moves.length) moves = Arrays.copyOf(moves, moves.length * 2);
+        moves[position++] = game.apply(move);
+        size = position;
+        return moves[position - 1];
+    }
+
+    // Reverts the last move played or redone; false if there is none.
+    boolean undo(Klondike game) {
+        if (position == 0) return false;
+        game.undo(moves[--position]);
+        return true;
+    }
+
+    // Replays the last move undone; false if there is none.
+    boolean redo(Klondike game) {
+        if (position == size) return false;
+        game.apply(moves[position++] & ~Klondike.FLIPPED);
+        return true;
+    }
+}
@@ -0,0 +1,249 @@
+package Solitaire;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the distinct positions reachable from a numbered deal within each number of
+// moves, like chess perft: a fixed answer per deal and depth that any change to
+// Klondike's move generation must reproduce, and a standing throughput benchmark for
+// moves(), apply() and hash().
+//
+// Usage: Perft [--deal=0] [--depth=8] [--threads=N] [--table-bits=24] [--check=false]
+//
+// The search is breadth first, one level at a time, so each position is counted at the
+// depth where it is first reached. Positions are told apart by Klondike.hash() (so two
+// that differ only in the order of the tableau columns count once) in a lock-free set.
+// A level is stored as one (parent, move) pair per position rather than the positions
+// themselves; workers expand it in chunks across a fork/join pool, rebuilding each
+// position by replaying its moves from the root and keeping whatever prefix the previous
+// position shared. With --check, every expanded position also checks moves() against
+// isLegal() over every source, target and count.
+public final class Perft {
+    private static final int CHUNK = 4096;
+
+    private final Klondike root;
+    private final ForkJoinPool pool;
+    private final PositionSet seen;
+    private final boolean check;
+    private final ThreadLocal<Worker> workers;
+    // Moves generated (each applied, hashed and undone) over all levels
+    private final LongAdder generated = new LongAdder();
+    // Level d position i was reached from position parents[d][i] of level d - 1 by moves[d][i]
+    private final int[][] parents, moves;
+    private int level;
+    // Output of the level being expanded, one pair of arrays per chunk
+    private int[][] chunkParents, chunkMoves;
+
+    private Perft(Klondike root, int maxDepth, ForkJoinPool pool, int tableBits, boolean check) {
+        this.root = root;
+        this.pool = pool;
+        this.check = check;
+        seen = new PositionSet(tableBits);
+        parents = new int[maxDepth + 1][];
+        moves = new int[maxDepth + 1][];
+        parents[0] = moves[0] = new int[1];
+        seen.add(root.hash());
+        workers = ThreadLocal.withInitial(() -> new Worker(maxDepth));
+    }
+
+    // Expands level (which must be the deepest so far) and returns how many new positions it reached.
+    private int expand(int d) {
+        level = d;
+        int chunks = (parents[d].length + CHUNK - 1) / CHUNK;
+        chunkParents = new int[chunks][];
+        chunkMoves = new int[chunks][];
+        pool.invoke(new Range(0, chunks));
+        int n = 0;
+        for (int[] p : chunkParents) n += p.length;
+        int[] p = new int[n], m = new int[n];
+        for (int c = 0, at = 0; c < chunks; at += chunkParents[c++].length) {
+            System.arraycopy(chunkParents[c], 0, p, at, chunkParents[c].length);
+            System.arraycopy(chunkMoves[c], 0, m, at, chunkMoves[c].length);
+        }
+        parents[d + 1] = p;
+        moves[d + 1] = m;
+        return n;
+    }
+
+    private final class Range extends RecursiveAction {
+        private final int from, to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid), new Range(mid, to));
+                return;
+            }
+            workers.get().expandChunk(from);
+        }
+    }
+
+    // Per-thread replay state: the worker's game holds the position at[1..depth] of levels 1..depth.
+    private final class Worker {
+        final Klondike game = new Klondike();
+        final int[] at, applied, path;
+        final int[] buf = new int[Klondike.MAX_MOVES];
+        int[] outParents = new int[CHUNK], outMoves = new int[CHUNK];
+        int depth = -1, out;
+
+        Worker(int maxDepth) {
+            at = new int[maxDepth + 1];
+            applied = new int[maxDepth + 1];
+            path = new int[maxDepth + 1];
+        }
+
+        void expandChunk(int chunk) {
+            int d = level, first = chunk * CHUNK, last = Math.min(parents[d].length, first + CHUNK);
+            out = 0;
+            long total = 0;
+            for (int i = first; i < last; i++) {
+                goTo(d, i);
+                if (check) checkMoves();
+                int n = game.moves(buf);
+                total += n;
+                for (int k = 0; k < n; k++) {
+                    int a = game.apply(buf[k]);
+                    long h = game.hash();
+                    game.undo(a);
+                    if (seen.add(h)) emit(i, buf[k]);
+                }
+            }
+            generated.add(total);
+            chunkParents[chunk] = Arrays.copyOf(outParents, out);
+            chunkMoves[chunk] = Arrays.copyOf(outMoves, out);
+        }
+
+        private void emit(int parent, int move) {
+            if (out == outParents.length) {
+                outParents = Arrays.copyOf(outParents, out * 2);
+                outMoves = Arrays.copyOf(outMoves, out * 2);
+            }
+            outParents[out] = parent;
+            outMoves[out++] = move;
+        }
+
+        // Brings game to position i of level d, undoing only back to the deepest ancestor
+        // it shares with the position it holds now.
+        private void goTo(int d, int i) {
+            if (depth < 0) {
+                game.copyFrom(root);
+                depth = 0;
+            }
+            int l = d, node = i;
+            while (l > 0 && (l > depth || at[l] != node)) {
+                path[l] = node;
+                node = parents[l][node];
+                l--;
+            }
+            while (depth > l) game.undo(applied[depth--]);
+            while (depth < d) {
+                depth++;
+                at[depth] = path[depth];
+                applied[depth] = game.apply(moves[depth][path[depth]]);
+            }
+        }
+
+        private void checkMoves() {
+            int n = game.moves(buf);
+            int legal = 0;
+            for (int from = 0; from < Klondike.PILES; from++) {
+                for (int to = 0; to < Klondike.PILES; to++) {
+                    for (int count = 1; count <= game.size(from); count++) {
+                        int m = Klondike.move(from, to, count);
+                        if (!game.isLegal(m)) continue;
+                        legal++;
+                        boolean listed = false;
+                        for (int k = 0; k < n && !listed; k++) listed = buf[k] == m;
+                        if (!listed) throw new IllegalStateException("moves() misses legal move " + Integer.toHexString(m));
+                    }
+                }
+            }
+            for (int k = 0; k < n; k++)
+                if (!game.isLegal(buf[k])) throw new IllegalStateException("moves() lists illegal move " + Integer.toHexString(buf[k]));
+            if (legal != n) throw new IllegalStateException("moves() lists " + n + " moves, isLegal() allows " + legal);
+        }
+    }
+
+    // Set of 64-bit hashes with linear probing; adds race safely through compare-and-set.
+    static final class PositionSet {
+        private final AtomicLongArray slots;
+        private final int mask;
+        private final long capacity;
+
+        PositionSet(int bits) {
+            slots = new AtomicLongArray(1 << bits);
+            mask = (1 << bits) - 1;
+            capacity = (1L << bits) / 4 * 3;
+        }
+
+        long capacity() { return capacity; }
+
+        // True if the hash was not in the set and has been added.
+        boolean add(long hash) {
+            // 0 marks an empty slot
+            if (hash == 0) hash = 1;
+            long z = hash * 0x9E3779B97F4A7C15L;
+            for (int i = (int) (z >>> 32) & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                long v = slots.get(i);
+                if (v == hash) return false;
+                if (v == 0) {
+                    if (slots.compareAndSet(i, 0, hash)) return true;
+                    if (slots.get(i) == hash) return false;
+                }
+            }
+            throw new IllegalStateException("Position table full; raise --table-bits");
+        }
+    }
+
+    public static void main(String[] args) {
+        long deal = 0;
+        int depth = 8, threads = Runtime.getRuntime().availableProcessors(), bits = 24;
+        boolean check = false;
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value, got " + a);
+            String k = a.substring(2, eq), v = a.substring(eq + 1);
+            switch (k) {
+                case "deal": deal = Long.parseLong(v); break;
+                case "depth": depth = Integer.parseInt(v); break;
+                case "threads": threads = Integer.parseInt(v); break;
+                case "table-bits": bits = Integer.parseInt(v); break;
+                case "check": check = Boolean.parseBoolean(v); break;
+                default: throw new IllegalArgumentException("Unknown option --" + k);
+            }
+        }
+        Klondike game = new Klondike();
+        game.deal(deal);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Perft perft = new Perft(game, depth, pool, bits, check);
+        System.out.printf("deal #%d, depth %d, %d threads%s%n", deal, depth, threads, check ? ", checking moves()" : "");
+        System.out.printf("%5s %12s %12s %10s %12s%n", "depth", "positions", "total", "ms", "moves/s");
+        long total = 1, start = System.nanoTime();
+        System.out.printf("%5d %12d %12d%n", 0, 1, total);
+        for (int d = 0; d < depth; d++) {
+            long before = perft.generated.sum(), t = System.nanoTime();
+            int n = perft.expand(d);
+            double secs = (System.nanoTime() - t) / 1e9;
+            long g = perft.generated.sum() - before;
+            total += n;
+            System.out.printf("%5d %12d %12d %10.1f %12.0f%n", d + 1, n, total, secs * 1e3, g / Math.max(secs, 1e-9));
+            if (n == 0) break;
+            if (total > perft.seen.capacity()) {
+                System.out.println("Position table over 3/4 full; raise --table-bits to go deeper");
+                break;
+            }
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        long generated = perft.generated.sum();
+        System.out.printf("%d positions, %d moves generated in %.2fs, %.0f moves/s%n", total, generated, secs, generated / secs);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,127 @@
+package Solitaire;
+import Bench.Harness;
+import Metrics.GameMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+// Solitaire hot paths for Bench.Harness. Deals come from fixed seeds; the engine
+// benchmarks run on a position 60 random legal moves into a seeded deal, with legality
+// probed over a fixed table of mostly illegal source/target pairs.
+public final class SolitaireBench {
+    private static final int PAIRS = 1024;
+
+    private SolitaireBench() {}
+
+    public static void run(Harness h) {
+        h.run("solitaire.newDeck", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) if (!new Deck(i).isEmpty()) n++;
+            return n;
+        });
+
+        byte[] order = new byte[Deal.CARDS];
+        h.run("solitaire.dealShuffle", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) {
+                Deal.shuffle(i, order);
+                n += order[0];
+            }
+            return n;
+        });
+        Deal.shuffle(2, order);
+        byte[] encoded = Deal.encode(order), scratchBytes = new byte[Deal.ENCODED_BYTES];
+        long[] scratch = Deal.newScratch();
+        h.run("solitaire.dealEncode", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) {
+                Deal.encode(order, scratchBytes, scratch);
+                n += scratchBytes[0];
+            }
+            return n;
+        });
+        h.run("solitaire.dealDecode", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) {
+                Deal.decode(encoded, order, scratch);
+                n += order[0];
+            }
+            return n;
+        });
+
+        // Mid-game fixture: 60 random legal moves into a seeded deal
+        Klondike game = new Klondike();
+        game.deal(new Deck(3));
+        Random pick = new Random(4);
+        int[] buf = new int[Klondike.MAX_MOVES];
+        for (int i = 0; i < 60; i++) game.apply(buf[pick.nextInt(game.moves(buf))]);
+        int[] probes = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int from = pick.nextInt(Klondike.PILES), to = pick.nextInt(Klondike.PILES);
+            probes[i] = Klondike.move(from, to, 1 + pick.nextInt(Math.max(1, game.size(from))));
+        }
+        h.run("solitaire.isLegal", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) if (game.isLegal(probes[(int) (i & (PAIRS - 1))])) n++;
+            return n;
+        });
+        h.run("solitaire.moves", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) n += game.moves(buf);
+            return n;
+        });
+        // Each op applies and undoes one legal move of the fixture, cycling through them
+        int legal = game.moves(buf);
+        h.run("solitaire.applyUndo", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) {
+                int m = game.apply(buf[(int) (i % legal)]);
+                n += game.hash();
+                game.undo(m);
+            }
+            return n;
+        });
+        Klondike copy = new Klondike();
+        h.run("solitaire.copyFrom", ops -> {
+            for (long i = 0; i < ops; i++) copy.copyFrom(game);
+            return copy.hash();
+        });
+
+        int[] points = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) points[i] = pick.nextInt(Layout.WIDTH) << 16 | pick.nextInt(Layout.HEIGHT);
+        h.run("solitaire.pick", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) {
+                int p = points[(int) (i & (PAIRS - 1))], x = p >>> 16, y = p & 0xFFFF;
+                int pile = Layout.pileAt(game, x, y);
+                if (pile >= 0) n += pile + Layout.cardAt(game, pile, y);
+            }
+            return n;
+        });
+
+        SolitairePanel panel = new SolitairePanel(new Deck(5));
+        panel.setSize(panel.getPreferredSize());
+        panel.settle();
+        BufferedImage img = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        h.run("solitaire.paintComponent", ops -> {
+            for (long i = 0; i < ops; i++) panel.paintComponent(g);
+            return img.getRGB(30, 200);
+        });
+
+        // One animation frame with all 52 cards in flight across the table
+        Animator animator = new Animator(panel, new CardSprites(Layout.CARD_W, Layout.CARD_H), GameMetrics.get("bench"), false);
+        for (int c = 0; c < Klondike.CARDS; c++)
+            animator.fly(c, pick.nextInt(Layout.WIDTH - Layout.CARD_W), pick.nextInt(Layout.HEIGHT - Layout.CARD_H),
+                    pick.nextInt(Layout.WIDTH - Layout.CARD_W), pick.nextInt(Layout.HEIGHT - Layout.CARD_H), 0, 1_000_000_000L, c % 3);
+        long base = System.nanoTime();
+        h.run("solitaire.animationFrame", ops -> {
+            for (long i = 0; i < ops; i++) {
+                animator.frame(base + (i % 50) * Animator.FRAME_NANOS);
+                animator.paint(g);
+            }
+            return img.getRGB(30, 200);
+        });
+        g.dispose();
+    }
+}
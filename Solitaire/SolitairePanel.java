@@ -0,0 +1,296 @@
+package Solitaire;
+import Metrics.GameMetrics;
+import javax.swing.*;
+
+import java.awt.*;
+import java.awt.event.*;
+
+class SolitairePanel extends JPanel {
+    private final int CARD_W = Layout.CARD_W, CARD_H = Layout.CARD_H, FAN = Layout.FAN;
+    // Animation timing: moves, turning a card over, dealing and the closing cascade
+    private final long MOVE_NANOS = 180_000_000L, TURN_NANOS = 200_000_000L;
+    private final long DEAL_NANOS = 300_000_000L, DEAL_STAGGER = 40_000_000L;
+    private final long CASCADE_NANOS = 350_000_000L, CASCADE_STAGGER = 45_000_000L;
+    private final Klondike game = new Klondike();
+    private final MoveLog log = new MoveLog();
+    private final CardSprites sprites = new CardSprites(CARD_W, CARD_H);
+    private final GameMetrics metrics = GameMetrics.get("solitaire");
+    private final Animator animator = new Animator(this, sprites, metrics);
+
+    // Drag state: the top dragCount cards of pile dragFrom follow the mouse, their top
+    // left corner at (dragX, dragY)
+    private int dragFrom = -1, dragCount = 0, dragX = 0, dragY = 0, dragOffsetX = 0, dragOffsetY = 0;
+    // Reused for the paint clip
+    private final Rectangle clip = new Rectangle();
+
+    // Latest hint for the position on screen (-1 until one arrives), outlined while showHint.
+    // The service (its thread and pool) only exists while the panel is displayable.
+    private HintService hints;
+    private int hintMove = -1;
+    private Solver.Result hintOutcome = Solver.Result.UNKNOWN;
+    private boolean showHint = false;
+
+    public SolitairePanel() {
+        this(new Deck());
+    }
+
+    public SolitairePanel(Deck deck) {
+        setPreferredSize(new Dimension(Layout.WIDTH, Layout.HEIGHT));
+        setBackground(new Color(0, 120, 0));
+        game.deal(deck);
+        // Deal the tableau out of the stock, row by row
+        long delay = 0;
+        for (int j = 0; j < Klondike.COLUMNS; j++) {
+            for (int i = j; i < Klondike.COLUMNS; i++, delay += DEAL_STAGGER) {
+                int c = game.card(i, j);
+                animator.fly(c, Layout.x(Klondike.STOCK), Layout.FOUNDATION_Y, Layout.x(i), Layout.y(i, j), delay, DEAL_NANOS,
+                        game.isFaceUp(c) ? Animator.TURN : Animator.BACK);
+            }
+        }
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                metrics.event();
+                if (e.getKeyCode() == KeyEvent.VK_H) {
+                    showHint = !showHint;
+                    repaint();
+                } else if (e.isControlDown() && (e.getKeyCode() == KeyEvent.VK_Y || e.getKeyCode() == KeyEvent.VK_Z && e.isShiftDown())) {
+                    step(log.redo(game));
+                } else if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_Z) {
+                    step(log.undo(game));
+                }
+            }
+        });
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                metrics.event();
+                requestFocusInWindow();
+                dragFrom = -1;
+                int pile = Layout.pileAt(game, e.getX(), e.getY());
+                // Stock click: flip to waste or recycle
+                if (pile == Klondike.STOCK) {
+                    if (game.size(Klondike.STOCK) > 0) play(Klondike.move(Klondike.STOCK, Klondike.WASTE, 1));
+                    else if (game.size(Klondike.WASTE) > 0) play(Klondike.move(Klondike.WASTE, Klondike.STOCK, game.size(Klondike.WASTE)));
+                    return;
+                }
+                // Anything else drags the card under the mouse and those above it (the
+                // top card only for waste and foundations); face-down cards stay put
+                int i = pile < 0 ? -1 : Layout.cardAt(game, pile, e.getY());
+                if (i < 0 || !game.isFaceUp(game.card(pile, i))) return;
+                int n = game.size(pile);
+                if (e.getClickCount() == 2 && i == n - 1 && sendHome(pile)) return;
+                startDrag(pile, n - i, e.getX() - Layout.x(pile), e.getY() - Layout.y(pile, i));
+            }
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                metrics.event();
+                if (dragFrom < 0) return;
+                // Repaint only where the dragged cards were and are now
+                int x = e.getX() - dragOffsetX, y = e.getY() - dragOffsetY, h = CARD_H + (dragCount - 1) * FAN;
+                repaint(Math.min(x, dragX), Math.min(y, dragY), Math.abs(x - dragX) + CARD_W + 1, Math.abs(y - dragY) + h + 1);
+                dragX = x;
+                dragY = y;
+            }
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                metrics.event();
+                if (dragFrom < 0) return;
+                int from = dragFrom;
+                dragFrom = -1;
+                int to = Layout.pileAt(game, e.getX(), e.getY());
+                if (to >= 0 && to < Klondike.STOCK && play(Klondike.move(from, to, dragCount), dragX, dragY)) return;
+                // Snap back if not dropped on valid pile
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    // The grabbed card's top left corner starts offsetX, offsetY up and left of the mouse.
+    private void startDrag(int pile, int count, int offsetX, int offsetY) {
+        dragFrom = pile;
+        dragCount = count;
+        dragOffsetX = offsetX;
+        dragOffsetY = offsetY;
+        dragX = Layout.x(pile);
+        dragY = Layout.y(pile, game.size(pile) - count);
+        for (int i = game.size(pile) - count; i < game.size(pile); i++) animator.land(game.card(pile, i));
+        // The hint outline hides while dragging
+        if (showHint) repaint();
+    }
+
+    // Double-click: the top card of pile goes to its foundation if it fits there.
+    private boolean sendHome(int pile) {
+        int c = game.top(pile);
+        return c >= 0 && play(Klondike.move(pile, Klondike.FOUNDATION + Klondike.suit(c), 1));
+    }
+
+    // Applies the move if the rules allow it, flying the cards over from their pile.
+    private boolean play(int move) {
+        int from = Klondike.from(move), first = Math.max(0, game.size(from) - Klondike.count(move));
+        return play(move, Layout.x(from), Layout.y(from, first));
+    }
+
+    // As play(move), with the moved cards starting from (x, y).
+    private boolean play(int move, int x, int y) {
+        if (!game.isLegal(move)) return false;
+        fly(log.play(game, move), x, y);
+        hintMove = -1;
+        if (HintService.canFinish(game)) {
+            showHint = false;
+            finish();
+        } else {
+            requestHint();
+        }
+        repaint();
+        return true;
+    }
+
+    // Animates a move just applied: its cards fly from (x, y) to their new pile (turning
+    // over if drawn from the stock) and a card it uncovered turns face up.
+    private void fly(int applied, int x, int y) {
+        int from = Klondike.from(applied), to = Klondike.to(applied), count = Klondike.count(applied);
+        if (to != Klondike.STOCK) {
+            for (int k = 0, first = game.size(to) - count; k < count; k++) {
+                animator.fly(game.card(to, first + k), x, y + k * FAN, Layout.x(to), Layout.y(to, first + k), 0, MOVE_NANOS,
+                        from == Klondike.STOCK ? Animator.TURN : 0);
+            }
+        }
+        if ((applied & Klondike.FLIPPED) != 0) {
+            int i = game.size(from) - 1, fx = Layout.x(from), fy = Layout.y(from, i);
+            animator.fly(game.card(from, i), fx, fy, fx, fy, 0, TURN_NANOS, Animator.TURN);
+        }
+    }
+
+    // Plays the game out at once (every tableau card is face up, so it is won) and sends
+    // the cards home in a cascade, one leaving every CASCADE_STAGGER.
+    private void finish() {
+        long delay = 0;
+        for (int move; (move = HintService.finishingMove(game)) >= 0; ) {
+            int from = Klondike.from(move), x = Layout.x(from), y = Layout.y(from, game.size(from) - 1);
+            int to = Klondike.to(log.play(game, move));
+            // Draws and recycles only bring cards to the top of the waste
+            if (to < Klondike.FOUNDATION || to >= Klondike.STOCK) continue;
+            animator.fly(game.top(to), x, y, Layout.x(to), Layout.FOUNDATION_Y, delay, CASCADE_NANOS, 0);
+            delay += CASCADE_STAGGER;
+        }
+    }
+
+    // After an undo or redo (changed is false when there was nothing to step over).
+    private void step(boolean changed) {
+        if (!changed) return;
+        animator.clear();
+        dragFrom = -1;
+        hintMove = -1;
+        requestHint();
+        repaint();
+    }
+
+    private void requestHint() {
+        if (hints != null) hints.update(game);
+    }
+
+    private void hintReady(int move, Solver.Result outcome) {
+        hintMove = move;
+        hintOutcome = outcome;
+        if (showHint) repaint();
+    }
+
+    // Lands every card in flight at once.
+    void settle() {
+        animator.clear();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        hints = new HintService(this::hintReady, HintService.DEFAULT_BUDGET_NANOS);
+        hintMove = -1;
+        requestHint();
+    }
+
+    @Override
+    public void removeNotify() {
+        animator.clear();
+        hints.close();
+        hints = null;
+        super.removeNotify();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = metrics.paintStart();
+        super.paintComponent(g);
+        // Cards outside the clip are skipped; with no clip set getClipBounds leaves this whole
+        clip.setBounds(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        g.getClipBounds(clip);
+        // Draw stock
+        int sx = Layout.x(Klondike.STOCK), topY = Layout.FOUNDATION_Y;
+        sprites.drawSlot(g, sx, topY);
+        if (game.size(Klondike.STOCK) > 0) sprites.drawBack(g, sx, topY);
+        // Draw waste (the card under a dragged one shows through)
+        int waste = topSettled(Klondike.WASTE, game.size(Klondike.WASTE) - (dragFrom == Klondike.WASTE ? 1 : 0));
+        if (waste > 0) sprites.drawFace(g, game.card(Klondike.WASTE, waste - 1), Layout.x(Klondike.WASTE), topY);
+        // Draw foundations
+        for (int i = 0; i < Klondike.SUITS; i++) {
+            int pile = Klondike.FOUNDATION + i, x = Layout.x(pile);
+            sprites.drawSlot(g, x, topY);
+            int n = topSettled(pile, game.size(pile) - (dragFrom == pile ? 1 : 0));
+            if (n > 0) sprites.drawFace(g, game.card(pile, n - 1), x, topY);
+        }
+        // Draw tableau
+        for (int i = 0; i < Klondike.COLUMNS; i++) {
+            int x = Layout.x(i);
+            int n = game.size(i) - (dragFrom == i ? dragCount : 0);
+            for (int j = 0; j < n; j++) {
+                int c = game.card(i, j);
+                int y = Layout.y(i, j);
+                if (!clip.intersects(x, y, CARD_W + 1, CARD_H + 1) || animator.isFlying(c)) continue;
+                if (game.isFaceUp(c)) sprites.drawFace(g, c, x, y);
+                else sprites.drawBack(g, x, y);
+            }
+        }
+        // Draw dragging cards
+        if (dragFrom >= 0) {
+            for (int k = 0, first = game.size(dragFrom) - dragCount; k < dragCount; k++) {
+                sprites.drawFace(g, game.card(dragFrom, first + k), dragX, dragY + k * FAN);
+            }
+        }
+        animator.paint(g);
+        if (showHint && dragFrom < 0) drawHint(g);
+        metrics.paintEnd(start);
+    }
+
+    // How many of the first n cards of pile to count as there: cards still flying onto
+    // the top of a waste or foundation are left out, showing the card beneath.
+    private int topSettled(int pile, int n) {
+        while (n > 0 && animator.isFlying(game.card(pile, n - 1))) n--;
+        return n;
+    }
+
+    // Outlines the cards the hint moves and where they go; draws and recycles outline the stock.
+    private void drawHint(Graphics g) {
+        g.setColor(Color.YELLOW);
+        if (hintOutcome == Solver.Result.LOSS) g.drawString("No winning line from here", Layout.STOCK_X, getHeight() - 10);
+        if (hintMove < 0) return;
+        int from = Klondike.from(hintMove), to = Klondike.to(hintMove);
+        if (from == Klondike.STOCK || to == Klondike.STOCK) {
+            outline(g, Klondike.STOCK, 0);
+            return;
+        }
+        outline(g, from, Klondike.count(hintMove));
+        outline(g, to, 0);
+    }
+
+    // Outline around the top count cards of pile, or just its top card (or empty slot) for 0.
+    private void outline(Graphics g, int pile, int count) {
+        int first = Math.max(0, game.size(pile) - Math.max(count, 1));
+        int x = Layout.x(pile), y = Layout.y(pile, first), h = Layout.height(game, pile, first);
+        g.drawRoundRect(x - 2, y - 2, CARD_W + 4, h + 4, 12, 12);
+        g.drawRoundRect(x - 3, y - 3, CARD_W + 6, h + 6, 14, 14);
+    }
+}
@@ -0,0 +1,374 @@
+package Solitaire;
+import Metrics.LatencyHistogram;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+// Decides whether a Klondike position can be won under the rules the UI plays by
+// (draw one, unlimited passes through the stock, kings only on empty columns, cards
+// may come back off the foundations) and finds a winning line if there is one.
+//
+// The search is depth-first. Before a position is expanded, cards that no remaining
+// card could need as a parent are played to the foundations without branching. Plain
+// draws are not searched: any stock or waste card that fits somewhere is one child
+// that draws (and recycles) up to it and plays it. Children are tried best first:
+// foundation moves, then moves that turn a card face up, then stock and waste cards
+// (fewest draws first), and moves off the foundations last. Every position entered is
+// recorded in a bounded lock-free table under Klondike.hashIgnoringDraws(); reaching a
+// recorded position again stops that branch, which also ends cycles. With a pool, the first few plies are split into fork/join tasks
+// and the rest of each branch is searched sequentially on whichever worker runs it.
+//
+// A solve ends as soon as any branch wins. Running out of nodes or time, or reaching
+// MAX_DEPTH on some branch, gives UNKNOWN instead of LOSS. One solve at a time per
+// instance.
+public final class Solver {
+    public enum Result { WIN, LOSS, UNKNOWN }
+
+    public static final int DEFAULT_TABLE_BITS = 22, MAX_DEPTH = 1024;
+    private static final int SPLIT_DEPTH = 3, CHECK_INTERVAL = 1024;
+    // Children of expand() with this bit play a stock or waste card: draw (bits 8-15)
+    // times, then move the waste top to the pile in the low bits
+    private static final int TALON = 1 << 30, TALON_MOVES = 24 * 8;
+    private static final int[] NO_MOVES = {};
+
+    private final ForkJoinPool pool;
+    private final SeenTable seen;
+    private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+    private final Klondike root = new Klondike();
+    private final LongAdder nodes = new LongAdder();
+    private final AtomicReference<int[]> solution = new AtomicReference<>();
+    private volatile boolean stop, aborted, truncated;
+    private long maxNodes, deadline, salt, solves;
+    private BooleanSupplier cancelled;
+
+    // pool may be null to search on the calling thread only.
+    public Solver(int tableBits, ForkJoinPool pool) {
+        this.pool = pool;
+        seen = new SeenTable(tableBits);
+    }
+
+    public Result solve(Klondike start) {
+        return solve(start, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public Result solve(Klondike start, long maxNodes, long budgetNanos) {
+        return solve(start, maxNodes, budgetNanos, () -> false);
+    }
+
+    // Searches from a copy of start; the position passed in is left as it was. The solve
+    // gives up as if out of budget once cancelled returns true, which it is asked at the
+    // start and then as often as the budget: unlike cancel(), that cannot be missed by
+    // calling it just before the solve begins.
+    public Result solve(Klondike start, long maxNodes, long budgetNanos, BooleanSupplier cancelled) {
+        root.copyFrom(start);
+        this.maxNodes = maxNodes;
+        this.cancelled = cancelled;
+        deadline = budgetNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + budgetNanos;
+        // A fresh salt per solve makes entries from earlier solves read as misses, so the table never needs clearing
+        salt = ++solves * 0x9E3779B97F4A7C15L;
+        nodes.reset();
+        solution.set(null);
+        stop = aborted = truncated = false;
+        if (cancelled.getAsBoolean()) aborted = stop = true;
+        if (pool == null) {
+            Context ctx = contexts.get();
+            ctx.reset(root, NO_MOVES);
+            search(ctx, 0);
+            nodes.add(ctx.ticks % CHECK_INTERVAL);
+        } else {
+            pool.invoke(new Task(NO_MOVES, 0));
+        }
+        if (solution.get() != null) return Result.WIN;
+        return aborted || truncated ? Result.UNKNOWN : Result.LOSS;
+    }
+
+    public long getNodes() { return nodes.sum(); }
+
+    // Winning line from the last solve, as moves to pass to Klondike.apply in order (including auto-moves).
+    public int getSolutionLength() {
+        int[] s = solution.get();
+        return s == null ? 0 : s.length;
+    }
+
+    public int getSolutionMove(int i) { return solution.get()[i]; }
+
+    // Ends the running solve early from any thread; it returns UNKNOWN as if out of budget.
+    // A cancel() before the solve starts is forgotten when it does.
+    public void cancel() {
+        aborted = stop = true;
+    }
+
+    private void search(Context ctx, int depth) {
+        if (stop) return;
+        if (++ctx.ticks % CHECK_INTERVAL == 0 && !withinLimits()) return;
+        int mark = ctx.pathLength, top = ctx.top;
+        int n = expand(ctx, depth);
+        for (int i = 0; i < n && !stop; i++) {
+            int before = ctx.pathLength;
+            play(ctx, ctx.stack[top + i]);
+            search(ctx, depth + 1);
+            ctx.rewind(before);
+        }
+        ctx.top = top;
+        ctx.rewind(mark);
+    }
+
+    private boolean withinLimits() {
+        nodes.add(CHECK_INTERVAL);
+        if (nodes.sum() <= maxNodes && System.nanoTime() - deadline < 0 && !cancelled.getAsBoolean()) return true;
+        aborted = stop = true;
+        return false;
+    }
+
+    // Plays safe foundation moves, then pushes the children worth trying onto ctx.stack,
+    // best first, and returns how many. Returns 0 for a position that is won, already
+    // seen or too deep; auto-moves stay applied for the caller to rewind.
+    private int expand(Context ctx, int depth) {
+        Klondike k = ctx.game;
+        autoPlay(ctx);
+        if (k.isWon()) {
+            int[] s = new int[ctx.pathLength];
+            for (int i = 0; i < s.length; i++) s[i] = ctx.path[i] & ~Klondike.FLIPPED;
+            if (solution.compareAndSet(null, s)) stop = true;
+            return 0;
+        }
+        if (!seen.add(k.hashIgnoringDraws() ^ salt)) return 0;
+        if (depth >= MAX_DEPTH) {
+            truncated = true;
+            return 0;
+        }
+        int total = k.moves(ctx.scratch), top = ctx.top;
+        ctx.n = 0;
+        ctx.reserve(total + TALON_MOVES);
+        for (int i = 0; i < total; i++) {
+            int m = ctx.scratch[i];
+            offer(ctx, top, m, score(k, m));
+        }
+        // Every card in stock and waste can be brought to the top of the waste by drawing
+        // (and recycling), so each one that fits somewhere is a single talon move
+        int w = k.size(Klondike.WASTE), s = k.size(Klondike.STOCK);
+        for (int d = w > 0 ? 0 : 1; d < (w > 0 ? s + w : s + 1); d++) {
+            int c = d == 0 ? k.top(Klondike.WASTE) : d <= s ? k.card(Klondike.STOCK, s - d) : k.card(Klondike.WASTE, d - s - 1);
+            int f = Klondike.FOUNDATION + Klondike.suit(c);
+            if (Klondike.rank(c) == k.size(f) + 1) offer(ctx, top, TALON | d << 8 | f, 800 - d);
+            for (int to = 0; to < Klondike.COLUMNS; to++) {
+                int t = k.top(to);
+                if (t < 0 ? Klondike.rank(c) == Klondike.RANKS : Klondike.isRed(t) != Klondike.isRed(c) && Klondike.rank(t) == Klondike.rank(c) + 1)
+                    offer(ctx, top, TALON | d << 8 | to, 400 - d);
+            }
+        }
+        ctx.top = top + ctx.n;
+        return ctx.n;
+    }
+
+    // Insertion sort into the children being built at top, highest score first; ties
+    // keep the order offered. Negative scores are dropped.
+    private static void offer(Context ctx, int top, int m, int score) {
+        if (score < 0) return;
+        int j = ctx.n++;
+        for (; j > 0 && ctx.scores[top + j - 1] < score; j--) {
+            ctx.stack[top + j] = ctx.stack[top + j - 1];
+            ctx.scores[top + j] = ctx.scores[top + j - 1];
+        }
+        ctx.stack[top + j] = m;
+        ctx.scores[top + j] = score;
+    }
+
+    // Applies a child from expand(), recording every primitive move on the path.
+    private static void play(Context ctx, int m) {
+        Klondike k = ctx.game;
+        if ((m & TALON) == 0) {
+            ctx.push(k.apply(m));
+            return;
+        }
+        for (int d = m >>> 8 & 255; d > 0; d--) {
+            if (k.size(Klondike.STOCK) == 0) ctx.push(k.apply(Klondike.move(Klondike.WASTE, Klondike.STOCK, k.size(Klondike.WASTE))));
+            ctx.push(k.apply(Klondike.move(Klondike.STOCK, Klondike.WASTE, 1)));
+        }
+        ctx.push(k.apply(Klondike.move(Klondike.WASTE, m & 15, 1)));
+    }
+
+    // Move ordering; negative means the move can never help (or is covered by a talon move).
+    static int score(Klondike k, int m) {
+        int from = Klondike.from(m), to = Klondike.to(m), count = Klondike.count(m);
+        if (from == Klondike.STOCK || from == Klondike.WASTE) return -1;
+        if (to >= Klondike.FOUNDATION) return 800;
+        if (from >= Klondike.FOUNDATION) return 10;
+        int below = k.size(from) - count;
+        // A whole column onto an empty one only renumbers the columns
+        if (below == 0) return k.size(to) == 0 ? -1 : 300;
+        if (!k.isFaceUp(k.card(from, below - 1))) return 600 + below;
+        return 100;
+    }
+
+    private void autoPlay(Context ctx) {
+        Klondike k = ctx.game;
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            for (int p = 0; p <= Klondike.WASTE; p++) {
+                if (p == Klondike.FOUNDATION) p = Klondike.WASTE;
+                int c = k.top(p);
+                if (c < 0 || !isSafe(k, c)) continue;
+                ctx.push(k.apply(Klondike.move(p, Klondike.FOUNDATION + Klondike.suit(c), 1)));
+                moved = true;
+            }
+        }
+    }
+
+    // True if c can go to its foundation and no card still in play could need it as a
+    // parent (both opposite-colour cards one rank down are already home).
+    private static boolean isSafe(Klondike k, int c) {
+        int r = Klondike.rank(c), s = Klondike.suit(c);
+        if (k.size(Klondike.FOUNDATION + s) != r - 1) return false;
+        if (r <= 2) return true;
+        // Suits run clubs, diamonds, hearts, spades: red is 1 and 2, black is 0 and 3
+        int a = Klondike.isRed(c) ? 0 : 1, b = Klondike.isRed(c) ? 3 : 2;
+        return k.size(Klondike.FOUNDATION + a) >= r - 1 && k.size(Klondike.FOUNDATION + b) >= r - 1;
+    }
+
+    // Per-thread search state, so the sequential part of a search allocates nothing.
+    private static final class Context {
+        final Klondike game = new Klondike();
+        final int[] scratch = new int[Klondike.MAX_MOVES];
+        int[] path = new int[256], stack = new int[1024], scores = new int[1024];
+        int pathLength, top, ticks, n;
+
+        void reset(Klondike root, int[] prefix) {
+            game.copyFrom(root);
+            pathLength = top = ticks = 0;
+            for (int m : prefix) push(game.apply(m));
+        }
+
+        void push(int applied) {
+            if (pathLength == path.length) path = Arrays.copyOf(path, path.length * 2);
+            path[pathLength++] = applied;
+        }
+
+        // Undoes everything after the first mark entries of the path.
+        void rewind(int mark) {
+            while (pathLength > mark) game.undo(path[--pathLength]);
+        }
+
+        void reserve(int n) {
+            if (top + n <= stack.length) return;
+            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + n));
+            scores = Arrays.copyOf(scores, stack.length);
+        }
+    }
+
+    // Expands one of the first SPLIT_DEPTH plies and forks a task per child. Below
+    // that, the branch is searched sequentially on the worker's own Context.
+    private final class Task extends RecursiveAction {
+        private final int[] prefix;
+        private final int depth;
+
+        Task(int[] prefix, int depth) {
+            this.prefix = prefix;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (stop) return;
+            if (depth >= SPLIT_DEPTH) {
+                Context ctx = contexts.get();
+                ctx.reset(root, prefix);
+                search(ctx, depth);
+                nodes.add(ctx.ticks % CHECK_INTERVAL);
+                return;
+            }
+            // Not the worker's Context: joins below may run other tasks on this thread
+            Context ctx = new Context();
+            ctx.reset(root, prefix);
+            nodes.increment();
+            int n = expand(ctx, depth);
+            if (n == 0) return;
+            Task[] tasks = new Task[n];
+            for (int i = 0; i < n; i++) {
+                int before = ctx.pathLength;
+                play(ctx, ctx.stack[i]);
+                int[] p = Arrays.copyOf(ctx.path, ctx.pathLength);
+                for (int j = 0; j < p.length; j++) p[j] &= ~Klondike.FLIPPED;
+                ctx.rewind(before);
+                tasks[i] = new Task(p, depth + 1);
+            }
+            // Forked last-to-first so this worker pops them back in move order; thieves take the least promising
+            for (int i = n - 1; i > 0; i--) tasks[i].fork();
+            tasks[0].compute();
+            for (int i = 1; i < n; i++) tasks[i].join();
+        }
+    }
+
+    // Usage: Solver [--deals=100] [--first=0] [--threads=N] [--nodes=50000000] [--ms=10000] [--table-bits=22]
+    // Solves consecutive numbered deals and prints a summary.
+    public static void main(String[] args) {
+        long deals = 100, first = 0, maxNodes = 50_000_000, ms = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors(), bits = DEFAULT_TABLE_BITS;
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value, got " + a);
+            String k = a.substring(2, eq), v = a.substring(eq + 1);
+            switch (k) {
+                case "deals": deals = Long.parseLong(v); break;
+                case "first": first = Long.parseLong(v); break;
+                case "threads": threads = Integer.parseInt(v); break;
+                case "nodes": maxNodes = Long.parseLong(v); break;
+                case "ms": ms = Long.parseLong(v); break;
+                case "table-bits": bits = Integer.parseInt(v); break;
+                default: throw new IllegalArgumentException("Unknown option --" + k);
+            }
+        }
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        Solver solver = new Solver(bits, pool);
+        Klondike game = new Klondike();
+        LatencyHistogram times = new LatencyHistogram();
+        long[] results = new long[Result.values().length];
+        long totalNodes = 0, start = System.nanoTime();
+        for (long seed = first; seed < first + deals; seed++) {
+            game.deal(seed);
+            long t = System.nanoTime();
+            Result r = solver.solve(game, maxNodes, ms * 1_000_000);
+            times.record(System.nanoTime() - t);
+            results[r.ordinal()]++;
+            totalNodes += solver.getNodes();
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d deals: %d won, %d lost, %d unknown%n", deals, results[0], results[1], results[2]);
+        System.out.printf("time %s%n%.0f nodes/s over %.1fs%n", times.summary(), totalNodes / secs, secs);
+        if (pool != null) pool.shutdown();
+    }
+
+    // Fixed-size set of position keys shared by all search threads without locks, in
+    // buckets of four slots. When a bucket is full one slot is overwritten, so the
+    // table only ever forgets positions (costing repeated work, never a wrong answer).
+    static final class SeenTable {
+        private final AtomicLongArray slots;
+        private final int mask;
+
+        SeenTable(int bits) {
+            slots = new AtomicLongArray(1 << bits);
+            mask = (1 << bits) - 4;
+        }
+
+        // True if the key was not in the table and has been added.
+        boolean add(long key) {
+            key |= 1;
+            int b = (int) (key ^ (key >>> 32)) & mask;
+            for (int i = b; i < b + 4; i++) {
+                long v = slots.get(i);
+                if (v == key) return false;
+                if (v == 0) {
+                    if (slots.compareAndSet(i, 0, key)) return true;
+                    if (slots.get(i) == key) return false;
+                }
+            }
+            slots.lazySet(b + (int) (key >>> 62), key);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package Solitaire;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+// Sorted list of deal numbers the solver has won, memory-mapped read-only so opening it
+// costs nothing however many deals it holds. Written by DealSurvey compact.
+//
+// Layout (big-endian): int magic, int version, long count, then count ascending longs.
+public final class WinnableIndex {
+    // Version 2: seeds are Deal numbers (version 1 used java.util.Random shuffles)
+    public static final int MAGIC = 0x4B57494E, VERSION = 2, HEADER = 16;
+    private final LongBuffer seeds;
+
+    private WinnableIndex(LongBuffer seeds) {
+        this.seeds = seeds;
+    }
+
+    public static WinnableIndex open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length < HEADER) throw new IOException(file + ": too short for an index");
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (map.getInt(0) != MAGIC) throw new IOException(file + ": not a winnable-deal index");
+            if (map.getInt(4) != VERSION) throw new IOException(file + ": index version " + map.getInt(4) + ", expected " + VERSION);
+            long count = map.getLong(8);
+            if (count < 0 || HEADER + count * 8 != length) throw new IOException(file + ": truncated index");
+            return new WinnableIndex(map.position(HEADER).slice().asLongBuffer());
+        }
+    }
+
+    // Writes seeds[0..n) (ascending, no duplicates) through a temporary file and an atomic rename.
+    public static void write(Path file, long[] seeds, int n) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(n);
+            for (int i = 0; i < n; i++) {
+                if (buf.remaining() < 8) {
+                    buf.flip();
+                    while (buf.hasRemaining()) ch.write(buf);
+                    buf.clear();
+                }
+                buf.putLong(seeds[i]);
+            }
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() { return seeds.limit(); }
+    public long seed(int i) { return seeds.get(i); }
+
+    public boolean contains(long seed) {
+        int lo = 0, hi = seeds.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long v = seeds.get(mid);
+            if (v < seed) lo = mid + 1;
+            else if (v > seed) hi = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    // A uniformly chosen winnable seed; the index must not be empty.
+    public long pick(Random rnd) {
+        return seeds.get(rnd.nextInt(seeds.limit()));
+    }
+}
@@ -0,0 +1,172 @@
+package Tetris;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Plays many headless games across all cores and streams one result per game.
+//
+// Usage: BatchSimulator [--games=N] [--threads=T] [--seed=S] [--policy=greedy|random]
+//                       [--randomizer=uniform|bag] [--rows=R] [--cols=C] [--max-pieces=P]
+//                       [--out=results.csv|results.bin]
+//
+// Game i is seeded with a SplitMix64 hash of (seed, i), so any single game can be
+// replayed on its own. Workers buffer results per chunk and append them to the sink
+// in one locked write, so memory stays flat however many games run.
+public final class BatchSimulator {
+    private static final int CHUNK = 64;
+
+    private final int games, rows, cols, maxPieces;
+    private final long seed;
+    private final String policy, randomizer;
+    private final double[] weights;
+    private final boolean binary;
+    private final OutputStream out;
+    private final ThreadLocal<Worker> workers;
+    private final LongAdder pieces = new LongAdder(), lines = new LongAdder(), done = new LongAdder();
+
+    public BatchSimulator(int games, long seed, String policy, String randomizer, int rows, int cols,
+                          int maxPieces, double[] weights, OutputStream out, boolean binary) {
+        this.games = games;
+        this.seed = seed;
+        this.policy = policy;
+        this.randomizer = randomizer;
+        this.rows = rows;
+        this.cols = cols;
+        this.maxPieces = maxPieces;
+        this.weights = weights;
+        this.out = out;
+        this.binary = binary;
+        workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    public static long gameSeed(long seed, long game) {
+        return Xoshiro.mix(seed + game * 0x9E3779B97F4A7C15L);
+    }
+
+    public long getPieces() { return pieces.sum(); }
+    public long getLines() { return lines.sum(); }
+    public long getGames() { return done.sum(); }
+
+    public void run(ForkJoinPool pool) throws IOException {
+        if (out != null && !binary) out.write("game,seed,score,lines,pieces,micros\n".getBytes(StandardCharsets.US_ASCII));
+        try {
+            pool.invoke(new Range(0, games));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        if (out != null) out.flush();
+    }
+
+    private final class Worker {
+        final TetrisEngine engine = new TetrisEngine(rows, cols, Randomizer.create(randomizer, 0), 1);
+        final Policy player = Policy.create(policy, rows, cols, weights);
+        final ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK * 48);
+        final DataOutputStream data = new DataOutputStream(chunk);
+        final StringBuilder line = new StringBuilder(64);
+
+        void play(long game) throws IOException {
+            long s = gameSeed(seed, game), start = System.nanoTime();
+            engine.reset(s);
+            player.reset(s);
+            while (!engine.isGameOver() && engine.getPieces() < maxPieces) player.play(engine);
+            long micros = (System.nanoTime() - start) / 1000;
+            pieces.add(engine.getPieces());
+            lines.add(engine.getLines());
+            done.increment();
+            if (out == null) return;
+            if (binary) {
+                // 36-byte big-endian record
+                data.writeLong(game);
+                data.writeLong(s);
+                data.writeInt(engine.getScore());
+                data.writeInt(engine.getLines());
+                data.writeInt(engine.getPieces());
+                data.writeLong(micros);
+            } else {
+                line.setLength(0);
+                line.append(game).append(',').append(s).append(',').append(engine.getScore()).append(',')
+                    .append(engine.getLines()).append(',').append(engine.getPieces()).append(',').append(micros).append('\n');
+                for (int i = 0; i < line.length(); i++) chunk.write(line.charAt(i));
+            }
+        }
+
+        void flush() throws IOException {
+            if (chunk.size() == 0) return;
+            synchronized (out) {
+                chunk.writeTo(out);
+            }
+            chunk.reset();
+        }
+    }
+
+    private final class Range extends RecursiveAction {
+        private final long from, to;
+
+        Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid), new Range(mid, to));
+                return;
+            }
+            Worker w = workers.get();
+            try {
+                for (long g = from; g < to; g++) w.play(g);
+                if (out != null) w.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value, got " + a);
+            opts.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return opts;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> o = parseArgs(args);
+        int games = Integer.parseInt(o.getOrDefault("games", "1000"));
+        int threads = Integer.parseInt(o.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        String outPath = o.get("out");
+        boolean binary = outPath != null && outPath.endsWith(".bin");
+        OutputStream out = outPath == null ? null : new BufferedOutputStream(Files.newOutputStream(Paths.get(outPath)), 1 << 16);
+        BatchSimulator sim = new BatchSimulator(games, Long.parseLong(o.getOrDefault("seed", "1")),
+                o.getOrDefault("policy", "greedy"), o.getOrDefault("randomizer", "uniform"),
+                Integer.parseInt(o.getOrDefault("rows", String.valueOf(TetrisEngine.DEFAULT_ROWS))),
+                Integer.parseInt(o.getOrDefault("cols", String.valueOf(TetrisEngine.DEFAULT_COLS))),
+                Integer.parseInt(o.getOrDefault("max-pieces", "10000")), Evaluator.DEFAULT_WEIGHTS.clone(), out, binary);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            sim.run(pool);
+        } finally {
+            pool.shutdown();
+            if (out != null) out.close();
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d pieces, %d lines in %.2fs on %d threads: %.0f games/s, %.0f pieces/s%n",
+                sim.getGames(), sim.getPieces(), sim.getLines(), secs, threads, sim.getGames() / secs, sim.getPieces() / secs);
+    }
+}
@@ -0,0 +1,76 @@
+package Tetris;
+import java.util.Arrays;
+
+// Copy of the engine state that a renderer reads without locks. Instances are
+// recycled between the simulation and the renderer by Simulation's triple buffer,
+// so copyFrom only copies rows whose version changed since this buffer was last filled.
+public final class BoardSnapshot {
+    public final int rows, cols;
+    final byte[] cells;
+    final int[] rowFill, rowVersion, preview;
+    int version = -1, current, orientation, curRow, curCol, score, lines, pieces;
+    boolean gameOver;
+    long tick, seconds, inputCount;
+    final long[] inputTimes = new long[GameSession.INPUT_HISTORY];
+    boolean fresh;
+
+    BoardSnapshot(int rows, int cols, int previewDepth) {
+        this.rows = rows;
+        this.cols = cols;
+        cells = new byte[rows * cols];
+        rowFill = new int[rows];
+        rowVersion = new int[rows];
+        Arrays.fill(rowVersion, -1);
+        preview = new int[previewDepth];
+    }
+
+    void copyFrom(TetrisEngine e, long tick, long seconds) {
+        if (version != e.getVersion()) {
+            for (int r = 0; r < rows; r++) {
+                int v = e.getRowVersion(r);
+                if (v == rowVersion[r]) continue;
+                e.copyRow(r, cells);
+                rowFill[r] = e.getRowFill(r);
+                rowVersion[r] = v;
+            }
+            version = e.getVersion();
+        }
+        current = e.getCurrent();
+        orientation = e.getOrientation();
+        curRow = e.getCurRow();
+        curCol = e.getCurCol();
+        score = e.getScore();
+        lines = e.getLines();
+        pieces = e.getPieces();
+        gameOver = e.isGameOver();
+        for (int i = 0; i < preview.length; i++) preview[i] = e.getPreview(i);
+        this.tick = tick;
+        this.seconds = seconds;
+    }
+
+    void copyInputs(long count, long[] times) {
+        if (count == inputCount) return;
+        inputCount = count;
+        System.arraycopy(times, 0, inputTimes, 0, times.length);
+    }
+
+    public int getCell(int r, int c) { return cells[r * cols + c]; }
+    public int getRowFill(int r) { return rowFill[r]; }
+    public int getRowVersion(int r) { return rowVersion[r]; }
+    public int getVersion() { return version; }
+    public int getCurrent() { return current; }
+    public int getOrientation() { return orientation; }
+    public int getCurRow() { return curRow; }
+    public int getCurCol() { return curCol; }
+    public int getScore() { return score; }
+    public int getLines() { return lines; }
+    public int getPieces() { return pieces; }
+    public int getPreview(int i) { return preview[i]; }
+    public boolean isGameOver() { return gameOver; }
+    public long getTick() { return tick; }
+    public long getSeconds() { return seconds; }
+    // Number of state-changing inputs so far; the event time of input n is getInputTime(n)
+    // while n is among the last INPUT_HISTORY.
+    public long getInputCount() { return inputCount; }
+    public long getInputTime(long n) { return inputTimes[(int) (n % GameSession.INPUT_HISTORY)]; }
+}
@@ -0,0 +1,259 @@
+package Tetris;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Placement search for automated play. For the active piece (and, with depth > 1,
+// the pieces in the preview queue) it finds every reachable resting position by a
+// breadth-first search over (rotation, row, column) using the same moves a player
+// has, so soft-drop tucks and spins under overhangs are included. Resulting boards
+// are scored with an Evaluator; line clears along the way add the lines weight.
+//
+// Depths are searched iteratively: depth 1 always completes, deeper levels only
+// replace the answer if they finish inside the time budget. Root candidates are
+// evaluated in parallel on a ForkJoinPool, and subtree values are memoized in a
+// shared lock-free transposition cache keyed by board hash, upcoming pieces and depth.
+public final class Bot implements Policy {
+    public static final int DEFAULT_DEPTH = 2, DEFAULT_CACHE_BITS = 20;
+    private static final double DEAD = -1e18;
+    private static final int[] MOVES = {TetrisEngine.ROTATE, TetrisEngine.LEFT, TetrisEngine.RIGHT, TetrisEngine.SOFT_DROP};
+    private static final int PARALLEL_THRESHOLD = 4;
+
+    private final int rows, cols, width, maxDepth, states;
+    private final double linesWeight;
+    private final double[] weights;
+    private final ForkJoinPool pool;
+    private final TranspositionCache cache;
+    private final ThreadLocal<Context> contexts;
+    private final Context root;
+    private long budgetNanos;
+    // Per decision
+    private final int[] pieces, rootFinals, path;
+    private final long[] pieceKeys;
+    private final double[] rootScores;
+    private int rootCount, depthLimit, pathLength, bestRotation, bestRow, bestCol, completedDepth;
+    private volatile long deadline;
+    private volatile boolean aborted;
+    private final LongAdder nodes = new LongAdder(), cacheHits = new LongAdder();
+    private long decisions;
+
+    // pool may be null to search on the calling thread only.
+    public Bot(int rows, int cols, double[] weights, int depth, long budgetNanos, ForkJoinPool pool) {
+        this.rows = rows;
+        this.cols = cols;
+        this.weights = weights;
+        this.maxDepth = Math.max(1, depth);
+        this.budgetNanos = budgetNanos;
+        this.pool = pool;
+        linesWeight = weights[Evaluator.LINES];
+        width = cols + Tetromino.SIZE - 1;
+        states = Tetromino.ROTATIONS * rows * width;
+        cache = new TranspositionCache(DEFAULT_CACHE_BITS);
+        contexts = ThreadLocal.withInitial(Context::new);
+        root = new Context();
+        pieces = new int[maxDepth];
+        pieceKeys = new long[maxDepth + 1];
+        rootFinals = new int[states];
+        rootScores = new double[states];
+        path = new int[states];
+    }
+
+    public void setBudgetNanos(long budgetNanos) { this.budgetNanos = budgetNanos; }
+    public int getRotation() { return bestRotation; }
+    public int getRow() { return bestRow; }
+    public int getCol() { return bestCol; }
+    public int getCompletedDepth() { return completedDepth; }
+    public long getDecisions() { return decisions; }
+    public long getNodes() { return nodes.sum(); }
+    public long getCacheHits() { return cacheHits.sum(); }
+
+    // Moves from the piece's current position to the chosen one; follow with HARD_DROP.
+    public int getPathLength() { return pathLength; }
+    public int getPathAction(int i) { return path[i]; }
+
+    @Override
+    public void play(TetrisEngine e) {
+        if (decide(e)) e.lockAt(bestRotation, bestRow, bestCol);
+        else e.hardDrop();
+    }
+
+    // Picks the best placement for the active piece; false if the game is over or nothing is reachable.
+    public boolean decide(TetrisEngine e) {
+        if (e.isGameOver()) return false;
+        decisions++;
+        deadline = System.nanoTime() + budgetNanos;
+        aborted = false;
+        long[] board = root.boards[0];
+        for (int r = 0; r < rows; r++) board[r] = e.getRowBits(r);
+        depthLimit = Math.min(maxDepth, 1 + e.getPreviewDepth());
+        pieces[0] = e.getCurrent();
+        for (int l = 1; l < depthLimit; l++) pieces[l] = e.getPreview(l - 1);
+        pieceKeys[depthLimit] = 0;
+        for (int l = depthLimit - 1; l >= 0; l--) pieceKeys[l] = Xoshiro.mix(pieceKeys[l + 1] * 31 + pieces[l] + 1);
+
+        rootCount = search(root, board, pieces[0], e.getRotation(), e.getCurRow(), e.getCurCol(), 0, true);
+        if (rootCount == 0) return false;
+        System.arraycopy(root.finals[0], 0, rootFinals, 0, rootCount);
+        int best = -1;
+        for (int d = 1; d <= depthLimit; d++) {
+            if (pool == null || rootCount < PARALLEL_THRESHOLD) scoreRoots(contexts.get(), 0, rootCount, d);
+            else pool.invoke(new RootTask(0, rootCount, d));
+            if (aborted) break;
+            best = 0;
+            for (int i = 1; i < rootCount; i++)
+                if (rootScores[i] > rootScores[best]) best = i;
+            completedDepth = d;
+        }
+        int s = rootFinals[best];
+        bestRotation = s / (rows * width);
+        bestRow = s / width % rows;
+        bestCol = s % width - (Tetromino.SIZE - 1);
+        pathLength = 0;
+        for (int at = s; root.parent[at] >= 0; at = root.parent[at]) path[pathLength++] = root.parentAction[at];
+        for (int i = 0, j = pathLength - 1; i < j; i++, j--) {
+            int t = path[i];
+            path[i] = path[j];
+            path[j] = t;
+        }
+        return true;
+    }
+
+    private void scoreRoots(Context ctx, int from, int to, int depth) {
+        long[] board = root.boards[0], next = ctx.boards[1];
+        for (int i = from; i < to; i++) {
+            int s = rootFinals[i];
+            int o = Tetromino.orientation(pieces[0], s / (rows * width));
+            int lines = Evaluator.place(board, rows, cols, o, s / width % rows, s % width - (Tetromino.SIZE - 1), next);
+            rootScores[i] = linesWeight * lines + value(ctx, 1, depth);
+        }
+    }
+
+    // Best achievable score from ctx.boards[level] with pieces[level..depth) still to place.
+    private double value(Context ctx, int level, int depth) {
+        long[] board = ctx.boards[level];
+        nodes.increment();
+        if (level == depth) return ctx.evaluator.evaluate(board, rows, cols, 0);
+        if (aborted) return 0;
+        if (System.nanoTime() - deadline > 0) {
+            aborted = true;
+            return 0;
+        }
+        long h = pieceKeys[level] ^ (depth - level);
+        for (int r = 0; r < rows; r++) h = Long.rotateLeft((h ^ board[r]) * 0x9E3779B97F4A7C15L, 29);
+        long key = Xoshiro.mix(h) | 1;
+        double cached = cache.get(key);
+        if (!Double.isNaN(cached)) {
+            cacheHits.increment();
+            return cached;
+        }
+        int type = pieces[level], spawnCol = cols / 2 - 2;
+        if (!TetrisEngine.fits(board, rows, cols, Tetromino.orientation(type, 0), 0, spawnCol)) return DEAD;
+        int n = search(ctx, board, type, 0, 0, spawnCol, level, false);
+        int[] finals = ctx.finals[level];
+        long[] next = ctx.boards[level + 1];
+        double best = DEAD;
+        for (int i = 0; i < n && !aborted; i++) {
+            int s = finals[i];
+            int o = Tetromino.orientation(type, s / (rows * width));
+            int lines = Evaluator.place(board, rows, cols, o, s / width % rows, s % width - (Tetromino.SIZE - 1), next);
+            best = Math.max(best, linesWeight * lines + value(ctx, level + 1, depth));
+        }
+        if (!aborted) cache.put(key, best);
+        return best;
+    }
+
+    // Breadth-first search over piece positions; fills ctx.finals[level] with every
+    // reachable resting state and returns how many there are.
+    private int search(Context ctx, long[] board, int type, int rot, int row, int col, int level, boolean trackPath) {
+        int gen = ++ctx.generation, head = 0, tail = 0, count = 0;
+        int[] queue = ctx.queue, stamp = ctx.stamp, finals = ctx.finals[level];
+        int start = encode(rot, row, col);
+        stamp[start] = gen;
+        queue[tail++] = start;
+        if (trackPath) ctx.parent[start] = -1;
+        while (head < tail) {
+            int s = queue[head++];
+            int r = s / (rows * width), y = s / width % rows, x = s % width - (Tetromino.SIZE - 1);
+            int o = Tetromino.orientation(type, r);
+            if (!TetrisEngine.fits(board, rows, cols, o, y + 1, x)) finals[count++] = s;
+            for (int action : MOVES) {
+                int nr = r, ny = y, nx = x;
+                if (action == TetrisEngine.ROTATE) nr = Tetromino.rotateCW(r);
+                else if (action == TetrisEngine.LEFT) nx--;
+                else if (action == TetrisEngine.RIGHT) nx++;
+                else ny++;
+                if (nx < -(Tetromino.SIZE - 1) || nx >= cols || ny >= rows) continue;
+                int ns = encode(nr, ny, nx);
+                if (stamp[ns] == gen) continue;
+                if (!TetrisEngine.fits(board, rows, cols, Tetromino.orientation(type, nr), ny, nx)) continue;
+                stamp[ns] = gen;
+                queue[tail++] = ns;
+                if (trackPath) {
+                    ctx.parent[ns] = s;
+                    ctx.parentAction[ns] = (byte) action;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int encode(int rot, int row, int col) {
+        return (rot * rows + row) * width + col + Tetromino.SIZE - 1;
+    }
+
+    // Per-thread scratch space, so a search allocates nothing.
+    private final class Context {
+        final long[][] boards = new long[maxDepth + 1][rows];
+        final int[][] finals = new int[maxDepth][states];
+        final int[] queue = new int[states], stamp = new int[states], parent = new int[states];
+        final byte[] parentAction = new byte[states];
+        final Evaluator evaluator = new Evaluator(rows, cols, weights);
+        int generation;
+    }
+
+    private final class RootTask extends RecursiveAction {
+        private final int from, to, depth;
+
+        RootTask(int from, int to, int depth) {
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RootTask(from, mid, depth), new RootTask(mid, to, depth));
+                return;
+            }
+            scoreRoots(contexts.get(), from, to, depth);
+        }
+    }
+
+    // Fixed-size table shared by all search threads without locks. Each entry stores
+    // key ^ value next to value, so a torn write from two racing threads reads as a miss.
+    static final class TranspositionCache {
+        private final AtomicLongArray table;
+        private final int mask;
+
+        TranspositionCache(int bits) {
+            table = new AtomicLongArray(2 << bits);
+            mask = (1 << bits) - 1;
+        }
+
+        double get(long key) {
+            int i = ((int) key & mask) << 1;
+            long v = table.get(i + 1);
+            return (table.get(i) ^ v) == key ? Double.longBitsToDouble(v) : Double.NaN;
+        }
+
+        void put(long key, double value) {
+            int i = ((int) key & mask) << 1;
+            long v = Double.doubleToRawLongBits(value);
+            table.lazySet(i, key ^ v);
+            table.lazySet(i + 1, v);
+        }
+    }
+}
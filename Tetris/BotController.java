@@ -0,0 +1,55 @@
+package Tetris;
+
+// Plays a GameSession with a Bot. A placement is planned once per piece on the
+// tick it spawns, then the path is fed to the game one move every pace ticks
+// (runs of soft drops go in a single tick) and finished with a hard drop, so the
+// piece visibly travels to its target and the moves are recorded like key input.
+public final class BotController implements GameSession.Controller {
+    private final Bot bot;
+    private final int pace;
+    private int[] path = new int[64];
+    private int plannedPiece = -1, pathLength, next, wait, row;
+    private boolean planned, replan;
+
+    public BotController(Bot bot, int pace) {
+        this.bot = bot;
+        this.pace = Math.max(1, pace);
+    }
+
+    public Bot getBot() { return bot; }
+
+    @Override
+    public void reset() {
+        plannedPiece = -1;
+    }
+
+    @Override
+    public void control(TetrisEngine e, InputHandler.Sink sink) {
+        if (e.isGameOver()) return;
+        if (e.getPieces() != plannedPiece || replan) {
+            plannedPiece = e.getPieces();
+            replan = false;
+            planned = bot.decide(e);
+            // Copied so one Bot can plan for several games stepped on the same thread
+            pathLength = bot.getPathLength();
+            if (path.length < pathLength) path = new int[pathLength];
+            for (int i = 0; i < pathLength; i++) path[i] = bot.getPathAction(i);
+            next = 0;
+            row = e.getCurRow();
+            wait = pace;
+        }
+        if (!planned || --wait > 0) return;
+        wait = pace;
+        // Soft drops only bring the piece down to the planned row; gravity may already have
+        while (next < pathLength && path[next] == TetrisEngine.SOFT_DROP) {
+            next++;
+            if (++row > e.getCurRow()) sink.apply(TetrisEngine.SOFT_DROP, 0);
+        }
+        if (next == pathLength) {
+            sink.apply(TetrisEngine.HARD_DROP, 0);
+            return;
+        }
+        // Gravity can push the piece past a tuck; plan again from where it is now
+        if (!sink.apply(path[next++], 0)) replan = true;
+    }
+}
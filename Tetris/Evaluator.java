@@ -0,0 +1,101 @@
+package Tetris;
+import java.util.Arrays;
+
+// Weighted board heuristic for automated play. Boards are read as row bitmasks
+// (row 0 at the top), features are integers and the score is their weighted sum;
+// higher is better. Instances keep scratch buffers, so use one per thread.
+public final class Evaluator {
+    public static final int HEIGHT = 0, HOLES = 1, BUMPINESS = 2, LINES = 3, WELLS = 4, ROW_TRANSITIONS = 5, FEATURES = 6;
+    public static final String[] NAMES = {"height", "holes", "bumpiness", "lines", "wells", "rowTransitions"};
+    // Aggregate height, holes, bumpiness and lines weights from the well-known greedy player
+    public static final double[] DEFAULT_WEIGHTS = {-0.510066, -0.35663, -0.184483, 0.760666, 0, 0};
+
+    private final double[] weights;
+    private final long[] scratch;
+    private final int[] heights, features = new int[FEATURES];
+
+    public Evaluator(int rows, int cols, double[] weights) {
+        if (weights.length != FEATURES) throw new IllegalArgumentException("Expected " + FEATURES + " weights");
+        this.weights = weights;
+        scratch = new long[rows];
+        heights = new int[cols];
+    }
+
+    public double[] getWeights() { return weights; }
+
+    public double score(int[] f) {
+        double s = 0;
+        for (int i = 0; i < FEATURES; i++) s += weights[i] * f[i];
+        return s;
+    }
+
+    // Scores the board after locking the active piece where landingRow() puts it, or
+    // returns NaN when that placement is unreachable.
+    public double evaluatePlacement(TetrisEngine e, int rotation, int col) {
+        int row = e.landingRow(rotation, col);
+        if (row < 0) return Double.NaN;
+        int lines = place(e, Tetromino.orientation(e.getCurrent(), rotation), row, col, scratch);
+        features(scratch, e.getRows(), e.getCols(), lines, heights, features);
+        return score(features);
+    }
+
+    // Scores a board (row masks, row 0 on top) with the given lines just cleared.
+    public double evaluate(long[] board, int rows, int cols, int lines) {
+        features(board, rows, cols, lines, heights, features);
+        return score(features);
+    }
+
+    // Copies the engine board into dst with the piece locked at (row, col) and full
+    // rows removed; returns the number of lines cleared.
+    static int place(TetrisEngine e, int orientation, int row, int col, long[] dst) {
+        int rows = e.getRows();
+        for (int r = 0; r < rows; r++) dst[r] = e.getRowBits(r);
+        return place(dst, rows, e.getCols(), orientation, row, col, dst);
+    }
+
+    // Same for a board held as row masks; src and dst may be the same array.
+    static int place(long[] src, int rows, int cols, int orientation, int row, int col, long[] dst) {
+        long full = cols == 64 ? -1L : (1L << cols) - 1;
+        if (src != dst) System.arraycopy(src, 0, dst, 0, rows);
+        for (int i = Tetromino.minRow(orientation); i <= Tetromino.maxRow(orientation); i++)
+            dst[row + i] |= TetrisEngine.shift(Tetromino.rowMask(orientation, i), col);
+        int w = rows - 1, lines = 0;
+        for (int r = rows - 1; r >= 0; r--) {
+            if (dst[r] == full) lines++;
+            else dst[w--] = dst[r];
+        }
+        while (w >= 0) dst[w--] = 0;
+        return lines;
+    }
+
+    // Fills out[] with the feature vector of the board; heights[] receives column heights.
+    public static void features(long[] rows, int n, int cols, int lines, int[] heights, int[] out) {
+        Arrays.fill(heights, 0, cols, 0);
+        long seen = 0, inner = cols == 1 ? 0 : (1L << (cols - 1)) - 1;
+        int holes = 0, transitions = 0;
+        for (int r = 0; r < n; r++) {
+            long row = rows[r];
+            holes += Long.bitCount(seen & ~row);
+            for (long fresh = row & ~seen; fresh != 0; fresh &= fresh - 1)
+                heights[Long.numberOfTrailingZeros(fresh)] = n - r;
+            seen |= row;
+            // Empty/filled changes across the row, with both walls counting as filled
+            if (row != 0)
+                transitions += Long.bitCount((row ^ (row >>> 1)) & inner) + (int) (~row & 1) + (int) (~(row >>> (cols - 1)) & 1);
+        }
+        int height = 0, bumpiness = 0, wells = 0;
+        for (int c = 0; c < cols; c++) {
+            height += heights[c];
+            if (c + 1 < cols) bumpiness += Math.abs(heights[c] - heights[c + 1]);
+            int left = c == 0 ? Integer.MAX_VALUE : heights[c - 1], right = c + 1 == cols ? Integer.MAX_VALUE : heights[c + 1];
+            int depth = Math.min(left, right) - heights[c];
+            if (depth > 0) wells += depth * (depth + 1) / 2;
+        }
+        out[HEIGHT] = height;
+        out[HOLES] = holes;
+        out[BUMPINESS] = bumpiness;
+        out[LINES] = lines;
+        out[WELLS] = wells;
+        out[ROW_TRANSITIONS] = transitions;
+    }
+}
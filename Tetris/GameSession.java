@@ -0,0 +1,101 @@
+package Tetris;
+import java.io.IOException;
+
+// One game advanced in fixed ticks: queued key events go through the InputHandler,
+// then gravity applies every gravityTicks ticks. Not thread-safe apart from key(),
+// which one producer thread may call while another thread steps the session.
+public final class GameSession {
+    static final int INPUT_HISTORY = 16;
+
+    // Drives the game in place of (or alongside) a player; called once per tick
+    // before queued keys are handled. Actions go through the sink so they are
+    // recorded like any other input.
+    public interface Controller {
+        void control(TetrisEngine engine, InputHandler.Sink sink);
+
+        default void reset() { }
+    }
+
+    final TetrisEngine engine;
+    private final InputQueue inputs = new InputQueue(256);
+    private final InputHandler handler = new InputHandler();
+    private final InputHandler.Sink sink = this::apply;
+    // Event times of the last few inputs that changed the game, for input-to-frame latency
+    private final long[] inputTimes = new long[INPUT_HISTORY];
+    private long inputCount, tick, gravityDue;
+    private volatile int gravityTicks;
+    private ReplayWriter recorder;
+    private Controller controller;
+    // Scheduling state owned by SessionHost
+    int id;
+    long deadline;
+    volatile boolean destroyed;
+
+    public GameSession(TetrisEngine engine, int gravityTicks) {
+        this.engine = engine;
+        this.gravityTicks = Math.max(1, gravityTicks);
+    }
+
+    public TetrisEngine getEngine() { return engine; }
+    public InputHandler getInputHandler() { return handler; }
+    public long getTick() { return tick; }
+    public long getInputCount() { return inputCount; }
+    long[] getInputTimes() { return inputTimes; }
+
+    // Rows fall one cell every this many ticks; smaller is faster.
+    public void setGravityTicks(int ticks) { gravityTicks = Math.max(1, ticks); }
+
+    // Takes ownership of the writer and closes it when the game stops.
+    public void setRecorder(ReplayWriter recorder) { this.recorder = recorder; }
+
+    public void setController(Controller controller) { this.controller = controller; }
+
+    // Key state change (InputHandler.KEY_*), timestamped on arrival.
+    public boolean key(int key, boolean pressed) {
+        return inputs.offer(InputHandler.encode(key, pressed), System.nanoTime());
+    }
+
+    public void reset(long seed) {
+        engine.reset(seed);
+        inputs.clear();
+        handler.reset();
+        if (controller != null) controller.reset();
+        inputCount = tick = 0;
+        gravityDue = gravityTicks;
+    }
+
+    public void step() {
+        tick++;
+        if (controller != null) controller.control(engine, sink);
+        handler.tick(inputs, sink, engine.getCols());
+        if (tick >= gravityDue) {
+            apply(TetrisEngine.GRAVITY, 0);
+            gravityDue = tick + gravityTicks;
+        }
+    }
+
+    private boolean apply(int action, long inputNanos) {
+        if (engine.isGameOver()) return false;
+        if (recorder != null) {
+            try {
+                recorder.record(tick, action);
+            } catch (IOException ex) {
+                System.err.println("Replay recording stopped: " + ex);
+                closeRecorder();
+            }
+        }
+        boolean changed = engine.apply(action);
+        if (changed && inputNanos != 0) inputTimes[(int) (++inputCount % INPUT_HISTORY)] = inputNanos;
+        return changed;
+    }
+
+    public void closeRecorder() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+        } catch (IOException ex) {
+            System.err.println("Could not finish replay: " + ex);
+        }
+        recorder = null;
+    }
+}
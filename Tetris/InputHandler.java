@@ -0,0 +1,91 @@
+package Tetris;
+import java.util.Arrays;
+
+// Turns raw key press/release events into engine actions once per simulation tick,
+// independent of the platform's key repeat settings. Holding left/right moves once,
+// waits the delayed auto-shift (DAS), then repeats every auto-repeat rate (ARR)
+// ticks; an ARR of 0 shifts straight to the wall. Soft drop repeats at its own rate
+// and several hard-drop presses within one tick count as one.
+public final class InputHandler {
+    public static final int KEY_LEFT = 0, KEY_RIGHT = 1, KEY_SOFT_DROP = 2, KEY_ROTATE = 3, KEY_HARD_DROP = 4, KEYS = 5;
+    public static final int DEFAULT_DAS = 10, DEFAULT_ARR = 2, DEFAULT_SOFT_DROP = 2; // ticks at 60 Hz
+
+    // Receives each action; inputNanos is the key event time, or 0 for auto-repeat.
+    public interface Sink {
+        boolean apply(int action, long inputNanos);
+    }
+
+    private final boolean[] held = new boolean[KEYS];
+    private int dasTicks = DEFAULT_DAS, arrTicks = DEFAULT_ARR, softDropTicks = DEFAULT_SOFT_DROP;
+    private int direction = -1, dasCounter, arrCounter, softCounter;
+
+    public static int encode(int key, boolean pressed) {
+        return key << 1 | (pressed ? 1 : 0);
+    }
+
+    public void setDas(int ticks) { dasTicks = Math.max(0, ticks); }
+    public void setArr(int ticks) { arrTicks = Math.max(0, ticks); }
+    public void setSoftDrop(int ticks) { softDropTicks = Math.max(1, ticks); }
+
+    public void reset() {
+        Arrays.fill(held, false);
+        direction = -1;
+    }
+
+    public void tick(InputQueue queue, Sink sink, int maxShift) {
+        boolean shifted = false, softDropped = false, hardDropped = false;
+        while (queue.poll()) {
+            int key = queue.code() >>> 1;
+            long nanos = queue.nanos();
+            if ((queue.code() & 1) == 0) {
+                held[key] = false;
+                if (key == direction) {
+                    // Fall back to the other direction if it is still held
+                    int other = key ^ 1;
+                    direction = held[other] ? other : -1;
+                    dasCounter = arrCounter = 0;
+                }
+                continue;
+            }
+            if (held[key]) continue; // platform auto-repeat
+            held[key] = true;
+            switch (key) {
+                case KEY_LEFT:
+                case KEY_RIGHT:
+                    direction = key;
+                    dasCounter = arrCounter = 0;
+                    shifted = true;
+                    sink.apply(key == KEY_LEFT ? TetrisEngine.LEFT : TetrisEngine.RIGHT, nanos);
+                    break;
+                case KEY_SOFT_DROP:
+                    softCounter = 0;
+                    softDropped = true;
+                    sink.apply(TetrisEngine.SOFT_DROP, nanos);
+                    break;
+                case KEY_ROTATE:
+                    sink.apply(TetrisEngine.ROTATE, nanos);
+                    break;
+                case KEY_HARD_DROP:
+                    if (!hardDropped) sink.apply(TetrisEngine.HARD_DROP, nanos);
+                    hardDropped = true;
+                    break;
+            }
+        }
+        if (direction >= 0 && !shifted) {
+            int action = direction == KEY_LEFT ? TetrisEngine.LEFT : TetrisEngine.RIGHT;
+            boolean repeat = false;
+            if (dasCounter < dasTicks) repeat = ++dasCounter == dasTicks && arrTicks > 0;
+            else if (arrTicks > 0 && ++arrCounter >= arrTicks) {
+                arrCounter = 0;
+                repeat = true;
+            }
+            if (repeat) sink.apply(action, 0);
+            else if (dasCounter >= dasTicks && arrTicks == 0)
+                for (int i = 0; i < maxShift && sink.apply(action, 0); i++) { }
+        }
+        if (held[KEY_SOFT_DROP] && !softDropped && ++softCounter >= softDropTicks) {
+            softCounter = 0;
+            sink.apply(TetrisEngine.SOFT_DROP, 0);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package Tetris;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded single-producer/single-consumer queue of timestamped input codes. The
+// UI thread offers, the simulation thread polls; neither side locks or allocates.
+public final class InputQueue {
+    private final int[] codes;
+    private final long[] times;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    private int code;
+    private long nanos;
+
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        codes = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    // Returns false (dropping the input) when the consumer has fallen a full buffer behind.
+    public boolean offer(int code, long nanos) {
+        long t = tail.get();
+        if (t - head.get() == codes.length) return false;
+        codes[(int) t & mask] = code;
+        times[(int) t & mask] = nanos;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    // Consumer side: on success the entry is available from code() and nanos().
+    public boolean poll() {
+        long h = head.get();
+        if (h == tail.get()) return false;
+        code = codes[(int) h & mask];
+        nanos = times[(int) h & mask];
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    public int code() { return code; }
+    public long nanos() { return nanos; }
+
+    public void clear() {
+        head.set(tail.get());
+    }
+}
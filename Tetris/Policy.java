@@ -0,0 +1,66 @@
+package Tetris;
+
+// Decides where each piece goes in headless play. play() must lock the active
+// piece (or end the game) so the engine always advances by one piece.
+public interface Policy {
+    void play(TetrisEngine engine);
+
+    // Called before each game so seeded policies are reproducible per game.
+    default void reset(long seed) { }
+
+    static Policy create(String kind, int rows, int cols, double[] weights) {
+        switch (kind) {
+            case "greedy": return new Greedy(new Evaluator(rows, cols, weights));
+            case "random": return new RandomPlacement();
+            case "search": return new Bot(rows, cols, weights, Bot.DEFAULT_DEPTH, Long.MAX_VALUE, null);
+            default: throw new IllegalArgumentException("Unknown policy: " + kind);
+        }
+    }
+
+    // Tries every rotation and column reachable from the spawn position and locks the
+    // piece where the evaluator scores the resulting board highest.
+    final class Greedy implements Policy {
+        private final Evaluator evaluator;
+
+        public Greedy(Evaluator evaluator) {
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public void play(TetrisEngine e) {
+            double best = Double.NEGATIVE_INFINITY;
+            int bestRot = -1, bestCol = 0;
+            for (int rot = 0; rot < Tetromino.ROTATIONS; rot++)
+                for (int col = -Tetromino.SIZE + 1; col < e.getCols(); col++) {
+                    double s = evaluator.evaluatePlacement(e, rot, col);
+                    if (s > best) {
+                        best = s;
+                        bestRot = rot;
+                        bestCol = col;
+                    }
+                }
+            if (bestRot < 0) e.hardDrop();
+            else e.placeAt(bestRot, bestCol);
+        }
+    }
+
+    // Scripted baseline: a uniformly random reachable placement from a seeded generator.
+    final class RandomPlacement implements Policy {
+        private final Xoshiro rng = new Xoshiro(0);
+
+        @Override
+        public void reset(long seed) {
+            rng.setSeed(~seed);
+        }
+
+        @Override
+        public void play(TetrisEngine e) {
+            for (int attempt = 0; attempt < 16; attempt++) {
+                int rot = rng.nextInt(Tetromino.ROTATIONS);
+                int col = rng.nextInt(e.getCols() + Tetromino.SIZE - 1) - Tetromino.SIZE + 1;
+                if (e.placeAt(rot, col)) return;
+            }
+            e.hardDrop();
+        }
+    }
+}
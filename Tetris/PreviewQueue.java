@@ -0,0 +1,47 @@
+package Tetris;
+import java.nio.ByteBuffer;
+
+// Fixed-size ring buffer of upcoming piece types, refilled from a Randomizer as
+// pieces are taken.
+public final class PreviewQueue {
+    private final int[] ring;
+    private final int mask, depth;
+    private final Randomizer randomizer;
+    private int head;
+
+    public PreviewQueue(Randomizer randomizer, int depth) {
+        if (depth < 1) throw new IllegalArgumentException("Preview depth must be at least 1");
+        this.randomizer = randomizer;
+        this.depth = depth;
+        ring = new int[Integer.highestOneBit(depth) << 1];
+        mask = ring.length - 1;
+    }
+
+    public void reset(long seed) {
+        randomizer.setSeed(seed);
+        head = 0;
+        for (int i = 0; i < depth; i++) ring[i] = randomizer.next();
+    }
+
+    public int take() {
+        int type = ring[head];
+        ring[(head + depth) & mask] = randomizer.next();
+        head = (head + 1) & mask;
+        return type;
+    }
+
+    public void writeState(ByteBuffer buf) {
+        for (int i = 0; i < depth; i++) buf.put((byte) peek(i));
+        randomizer.writeState(buf);
+    }
+
+    public void readState(ByteBuffer buf) {
+        head = 0;
+        for (int i = 0; i < depth; i++) ring[i] = buf.get();
+        randomizer.readState(buf);
+    }
+
+    public Randomizer getRandomizer() { return randomizer; }
+    public int peek(int i) { return ring[(head + i) & mask]; }
+    public int getDepth() { return depth; }
+}
@@ -0,0 +1,83 @@
+package Tetris;
+import java.nio.ByteBuffer;
+
+// Source of piece types for the preview queue. Implementations are reseedable so
+// a game is fully determined by its seed, and their state can be saved for replay keyframes.
+public interface Randomizer {
+    int next();
+    void setSeed(long seed);
+    String getKind(); // name accepted by create()
+    void writeState(ByteBuffer buf);
+    void readState(ByteBuffer buf);
+
+    static Randomizer create(String kind, long seed) {
+        switch (kind) {
+            case "uniform": return new Uniform(seed);
+            case "bag": return new SevenBag(seed);
+            default: throw new IllegalArgumentException("Unknown randomizer: " + kind);
+        }
+    }
+
+    // Every piece equally likely on every draw, as the original Tetromino.random() did.
+    final class Uniform implements Randomizer {
+        private final Xoshiro rng;
+
+        public Uniform(long seed) {
+            rng = new Xoshiro(seed);
+        }
+
+        @Override public int next() { return rng.nextInt(Tetromino.COUNT); }
+        @Override public void setSeed(long seed) { rng.setSeed(seed); }
+        @Override public String getKind() { return "uniform"; }
+        @Override public void writeState(ByteBuffer buf) { rng.writeState(buf); }
+        @Override public void readState(ByteBuffer buf) { rng.readState(buf); }
+    }
+
+    // Deals each group of 7 pieces as a shuffled permutation of all seven types.
+    final class SevenBag implements Randomizer {
+        private final Xoshiro rng;
+        private final int[] bag = new int[Tetromino.COUNT];
+        private int pos;
+
+        public SevenBag(long seed) {
+            rng = new Xoshiro(seed);
+            setSeed(seed);
+        }
+
+        @Override
+        public int next() {
+            if (pos == bag.length) {
+                for (int i = bag.length - 1; i > 0; i--) {
+                    int j = rng.nextInt(i + 1), t = bag[i];
+                    bag[i] = bag[j];
+                    bag[j] = t;
+                }
+                pos = 0;
+            }
+            return bag[pos++];
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            rng.setSeed(seed);
+            for (int i = 0; i < bag.length; i++) bag[i] = i;
+            pos = bag.length;
+        }
+
+        @Override public String getKind() { return "bag"; }
+
+        @Override
+        public void writeState(ByteBuffer buf) {
+            rng.writeState(buf);
+            for (int t : bag) buf.put((byte) t);
+            buf.put((byte) pos);
+        }
+
+        @Override
+        public void readState(ByteBuffer buf) {
+            rng.readState(buf);
+            for (int i = 0; i < bag.length; i++) bag[i] = buf.get();
+            pos = buf.get();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package Tetris;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Memory-mapped playback of a file written by ReplayWriter. Actions are decoded
+// straight from the mapping into a headless engine, so playback runs as fast as
+// the engine does. seek() jumps via the nearest keyframe at or before the target.
+public final class ReplayReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final TetrisEngine engine;
+    private final int dataStart;
+    private long tick;
+    // Keyframe index, built on the first seek
+    private long[] keyTicks;
+    private int[] keyOffsets;
+    private int keyCount = -1;
+
+    public ReplayReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (map.getInt() != ReplayWriter.MAGIC || map.get() != ReplayWriter.VERSION)
+            throw new IOException("Not a Tetris replay: " + path);
+        int rows = map.getShort(), cols = map.get() & 0xFF, depth = map.get() & 0xFF;
+        byte[] kind = new byte[map.get()];
+        map.get(kind);
+        long seed = map.getLong();
+        engine = new TetrisEngine(rows, cols, Randomizer.create(new String(kind, StandardCharsets.US_ASCII), seed), depth);
+        engine.reset(seed);
+        dataStart = map.position();
+    }
+
+    public TetrisEngine getEngine() { return engine; }
+    public long getTick() { return tick; }
+
+    // Applies the next action; returns false at the end of the recording.
+    public boolean step() {
+        return fastForward(Long.MAX_VALUE, 1) > 0;
+    }
+
+    // Applies every remaining action up to and including the given tick.
+    public long fastForward(long toTick) {
+        return fastForward(toTick, Long.MAX_VALUE);
+    }
+
+    private long fastForward(long toTick, long maxActions) {
+        long applied = 0;
+        while (applied < maxActions) {
+            int start = map.position();
+            long code = readVarLong();
+            if (code < 0) break;
+            long t = tick + (code >>> 3);
+            if (t > toTick) {
+                map.position(start);
+                break;
+            }
+            tick = t;
+            int action = (int) (code & 7);
+            if (action == ReplayWriter.KEYFRAME) {
+                long len = readVarLong();
+                if (len < 0 || len > map.remaining()) break;
+                map.position(map.position() + (int) len);
+                continue;
+            }
+            engine.apply(action);
+            applied++;
+        }
+        return applied;
+    }
+
+    // Positions playback at the state after every action recorded at or before the tick.
+    public void seek(long target) {
+        if (keyCount < 0) buildIndex();
+        int k = Arrays.binarySearch(keyTicks, 0, keyCount, target);
+        if (k < 0) k = -k - 2;
+        // Keep going forward from the current position if that is closer than the keyframe
+        boolean back = tick > target;
+        if (k >= 0 && (back || keyTicks[k] > tick)) {
+            map.position(keyOffsets[k]);
+            long len = readVarLong();
+            engine.readState(map.slice().limit((int) len));
+            map.position(map.position() + (int) len);
+            tick = keyTicks[k];
+        } else if (back) {
+            engine.reset(engine.getSeed());
+            map.position(dataStart);
+            tick = 0;
+        }
+        fastForward(target);
+    }
+
+    private void buildIndex() {
+        int saved = map.position();
+        long savedTick = tick, t = 0;
+        keyTicks = new long[16];
+        keyOffsets = new int[16];
+        keyCount = 0;
+        map.position(dataStart);
+        for (long code; (code = readVarLong()) >= 0; ) {
+            t += code >>> 3;
+            if ((code & 7) != ReplayWriter.KEYFRAME) continue;
+            if (keyCount == keyTicks.length) {
+                keyTicks = Arrays.copyOf(keyTicks, keyCount * 2);
+                keyOffsets = Arrays.copyOf(keyOffsets, keyCount * 2);
+            }
+            keyTicks[keyCount] = t;
+            keyOffsets[keyCount++] = map.position();
+            long len = readVarLong();
+            if (len < 0 || len > map.remaining()) {
+                keyCount--;
+                break;
+            }
+            map.position(map.position() + (int) len);
+        }
+        map.position(saved);
+        tick = savedTick;
+    }
+
+    // Returns -1 at the end of the data, including a record truncated by a crash.
+    private long readVarLong() {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!map.hasRemaining()) return -1;
+            byte b = map.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Usage: ReplayReader <file> [tick]. Plays the replay (or seeks to the tick) and prints the result.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayReader <file> [tick]");
+            return;
+        }
+        try (ReplayReader reader = new ReplayReader(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            if (args.length > 1) reader.seek(Long.parseLong(args[1]));
+            else reader.fastForward(Long.MAX_VALUE);
+            double secs = (System.nanoTime() - start) / 1e9;
+            TetrisEngine e = reader.getEngine();
+            System.out.printf("seed=%d tick=%d score=%d lines=%d pieces=%d gameOver=%b%n",
+                    e.getSeed(), reader.getTick(), e.getScore(), e.getLines(), e.getPieces(), e.isGameOver());
+            System.out.printf("%.1f ms, %.0f ticks/s%n", secs * 1000, reader.getTick() / Math.max(secs, 1e-9));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package Tetris;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Append-only replay file. Layout:
+//   header:  magic, version, rows, cols, preview depth, randomizer kind, seed
+//   records: varint((tickDelta << 3) | action) for each engine action, where
+//            action KEYFRAME is followed by varint(length) and an engine state.
+// A keyframe is written before the first action of a tick once keyframeInterval
+// ticks have passed, so readers can seek without replaying from the start.
+public final class ReplayWriter implements Closeable {
+    static final int MAGIC = 0x54525031, VERSION = 1, KEYFRAME = 7;
+    public static final long DEFAULT_KEYFRAME_INTERVAL = 1024;
+
+    private final FileChannel channel;
+    private final TetrisEngine engine;
+    private final ByteBuffer buf, state;
+    private final long keyframeInterval;
+    private long lastTick, lastKeyframe;
+
+    public ReplayWriter(Path path, TetrisEngine engine) throws IOException {
+        this(path, engine, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    // Must be created right after engine.reset(), before any action is recorded.
+    public ReplayWriter(Path path, TetrisEngine engine, long keyframeInterval) throws IOException {
+        this.engine = engine;
+        this.keyframeInterval = keyframeInterval;
+        state = ByteBuffer.allocate(engine.getStateSize());
+        buf = ByteBuffer.allocateDirect(Math.max(1 << 16, state.capacity() + 32));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        byte[] kind = engine.getRandomizer().getKind().getBytes(StandardCharsets.US_ASCII);
+        buf.putInt(MAGIC).put((byte) VERSION).putShort((short) engine.getRows()).put((byte) engine.getCols())
+           .put((byte) engine.getPreviewDepth()).put((byte) kind.length).put(kind).putLong(engine.getSeed());
+    }
+
+    // Call before the action is applied to the engine.
+    public void record(long tick, int action) throws IOException {
+        if (tick - lastKeyframe >= keyframeInterval) keyframe(tick);
+        ensure(10);
+        putVarLong(buf, ((tick - lastTick) << 3) | action);
+        lastTick = tick;
+    }
+
+    private void keyframe(long tick) throws IOException {
+        state.clear();
+        engine.writeState(state);
+        state.flip();
+        ensure(state.remaining() + 20);
+        putVarLong(buf, ((tick - lastTick) << 3) | KEYFRAME);
+        putVarLong(buf, state.remaining());
+        buf.put(state);
+        lastTick = lastKeyframe = tick;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buf.remaining() < n) flush();
+    }
+
+    public void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    static void putVarLong(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+}
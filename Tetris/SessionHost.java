@@ -0,0 +1,278 @@
+package Tetris;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless host for many independent games. Sessions are spread over a small pool
+// of scheduler threads; each thread keeps its sessions in a binary heap ordered by
+// next tick deadline and sleeps until the earliest one is due, so idle boards cost
+// nothing between ticks. Sessions are addressed by int ids that index a slot table.
+public final class SessionHost {
+    private static final long MAX_LAG_NANOS = 250_000_000;
+
+    // Called on a scheduler thread when a session's game ends. The session stays
+    // addressable (and its engine readable) until destroy().
+    public interface Listener {
+        void gameOver(int id, TetrisEngine engine);
+    }
+
+    public static final class Stats {
+        public final int sessions;
+        public final long ticks, pieces, lines, gamesOver;
+        public final double ticksPerSecond, piecesPerSecond;
+
+        Stats(int sessions, long ticks, long pieces, long lines, long gamesOver, double ticksPerSecond, double piecesPerSecond) {
+            this.sessions = sessions;
+            this.ticks = ticks;
+            this.pieces = pieces;
+            this.lines = lines;
+            this.gamesOver = gamesOver;
+            this.ticksPerSecond = ticksPerSecond;
+            this.piecesPerSecond = piecesPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sessions=%d ticks=%d (%.0f/s) pieces=%d (%.0f/s) lines=%d gamesOver=%d",
+                    sessions, ticks, ticksPerSecond, pieces, piecesPerSecond, lines, gamesOver);
+        }
+    }
+
+    private final long period;
+    private final AtomicReferenceArray<GameSession> slots;
+    private final int[] freeIds;
+    private int freeCount, live;
+    private final Shard[] shards;
+    private volatile Listener listener;
+    private long lastStatsNanos, lastTicks, lastPieces;
+
+    public SessionHost(int threads, int maxSessions, int tickHz) {
+        period = 1_000_000_000L / tickHz;
+        slots = new AtomicReferenceArray<>(maxSessions);
+        freeIds = new int[maxSessions];
+        for (int i = 0; i < maxSessions; i++) freeIds[i] = maxSessions - 1 - i;
+        freeCount = maxSessions;
+        shards = new Shard[threads];
+        for (int i = 0; i < threads; i++) {
+            shards[i] = new Shard("tetris-host-" + i);
+            shards[i].start();
+        }
+        lastStatsNanos = System.nanoTime();
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    // Starts a new game and returns its id, or -1 when the host is full (leaving the
+    // engine untouched).
+    public int create(TetrisEngine engine, long seed, int gravityTicks) {
+        int id;
+        synchronized (freeIds) {
+            if (freeCount == 0) return -1;
+            id = freeIds[--freeCount];
+            live++;
+        }
+        GameSession s;
+        try {
+            s = new GameSession(engine, gravityTicks);
+            s.reset(seed);
+        } catch (RuntimeException e) {
+            release(id);
+            throw e;
+        }
+        s.id = id;
+        slots.set(s.id, s);
+        s.deadline = System.nanoTime() + period;
+        shards[s.id % shards.length].add(s);
+        return s.id;
+    }
+
+    public int create(long seed) {
+        return create(new TetrisEngine(), seed, Simulation.DEFAULT_GRAVITY_TICKS);
+    }
+
+    public void destroy(int id) {
+        GameSession s = slots.get(id);
+        if (s == null || !slots.compareAndSet(id, s, null)) return;
+        s.destroyed = true;
+        release(id);
+    }
+
+    private void release(int id) {
+        synchronized (freeIds) {
+            freeIds[freeCount++] = id;
+            live--;
+        }
+    }
+
+    // Injects a key event (InputHandler.KEY_*) into a session's input queue. At most
+    // one thread may inject into a given session.
+    public boolean key(int id, int key, boolean pressed) {
+        GameSession s = slots.get(id);
+        return s != null && s.key(key, pressed);
+    }
+
+    // Presses and releases a key so it applies exactly once on the next tick.
+    public boolean tap(int id, int key) {
+        return key(id, key, true) && key(id, key, false);
+    }
+
+    public GameSession get(int id) {
+        return slots.get(id);
+    }
+
+    // Totals since start; the rates cover the time since the previous call.
+    public synchronized Stats stats() {
+        long ticks = 0, pieces = 0, lines = 0, over = 0;
+        for (Shard sh : shards) {
+            ticks += sh.ticks;
+            pieces += sh.pieces;
+            lines += sh.lines;
+            over += sh.gamesOver;
+        }
+        int sessions;
+        synchronized (freeIds) {
+            sessions = live;
+        }
+        long now = System.nanoTime();
+        double secs = Math.max(now - lastStatsNanos, 1) / 1e9;
+        Stats st = new Stats(sessions, ticks, pieces, lines, over, (ticks - lastTicks) / secs, (pieces - lastPieces) / secs);
+        lastStatsNanos = now;
+        lastTicks = ticks;
+        lastPieces = pieces;
+        return st;
+    }
+
+    public void shutdown() {
+        for (Shard sh : shards) sh.running = false;
+        for (Shard sh : shards) {
+            LockSupport.unpark(sh);
+            try {
+                sh.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int i = 0; i < slots.length(); i++) destroy(i);
+    }
+
+    private final class Shard extends Thread {
+        private final ConcurrentLinkedQueue<GameSession> added = new ConcurrentLinkedQueue<>();
+        private GameSession[] heap = new GameSession[64];
+        private int size;
+        // Written only by this thread
+        volatile long ticks, pieces, lines, gamesOver;
+        volatile boolean running = true;
+
+        Shard(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        void add(GameSession s) {
+            added.add(s);
+            LockSupport.unpark(this);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                for (GameSession s; (s = added.poll()) != null; ) push(s);
+                if (size == 0) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                GameSession s = heap[0];
+                long now = System.nanoTime(), wait = s.deadline - now;
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+                pop();
+                if (s.destroyed) {
+                    s.closeRecorder();
+                    continue;
+                }
+                TetrisEngine e = s.engine;
+                int p = e.getPieces(), l = e.getLines();
+                s.step();
+                ticks++;
+                if (e.getPieces() != p) pieces += e.getPieces() - p;
+                if (e.getLines() != l) lines += e.getLines() - l;
+                if (e.isGameOver()) {
+                    gamesOver++;
+                    s.closeRecorder();
+                    Listener li = listener;
+                    if (li != null) li.gameOver(s.id, e);
+                    continue;
+                }
+                s.deadline = now - s.deadline > MAX_LAG_NANOS ? now + period : s.deadline + period;
+                push(s);
+            }
+        }
+
+        private void push(GameSession s) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent].deadline - s.deadline <= 0) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = s;
+        }
+
+        private void pop() {
+            GameSession last = heap[--size];
+            heap[size] = null;
+            if (size == 0) return;
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1].deadline - heap[child].deadline < 0) child++;
+                if (last.deadline - heap[child].deadline <= 0) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+        }
+    }
+
+    // Load test: SessionHost <sessions> [threads] [seconds]. Every session gets random key taps.
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        SessionHost host = new SessionHost(threads, sessions, Simulation.DEFAULT_TICK_HZ);
+        // Engines belong to the scheduler threads; finished games come back through the listener
+        ConcurrentLinkedQueue<Integer> ended = new ConcurrentLinkedQueue<>();
+        host.setListener((id, engine) -> ended.add(id));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) ids.add(host.create(i));
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        long end = System.nanoTime() + seconds * 1_000_000_000L, nextReport = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            // One thread injects for every session, so each queue keeps a single producer
+            for (Integer id; (id = ended.poll()) != null; ) host.destroy(id);
+            for (int id : ids)
+                if (rnd.nextInt(30) == 0) host.tap(id, rnd.nextInt(InputHandler.KEYS));
+            ids.removeIf(id -> host.get(id) == null);
+            while (ids.size() < sessions) {
+                int id = host.create(rnd.nextLong());
+                if (id < 0) break;
+                ids.add(id);
+            }
+            if (System.nanoTime() >= nextReport) {
+                System.out.println(host.stats());
+                nextReport += 1_000_000_000L;
+            }
+            Thread.sleep(5);
+        }
+        host.shutdown();
+    }
+}
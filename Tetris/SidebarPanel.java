@@ -0,0 +1,113 @@
+package Tetris;
+import javax.swing.*;
+import java.awt.*;
+import java.util.*;
+
+class SidebarPanel extends JPanel {
+    private JLabel scoreLabel, timeLabel;
+    private NextPiecePanel nextPanel;
+    private JTextArea metricsText;
+    private int score = 0, time = 0;
+    private Runnable endListener;
+
+    public SidebarPanel(TetrisPanel gamePanel) {
+        setPreferredSize(new Dimension(140, 600));
+        setBackground(Color.LIGHT_GRAY);
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        add(Box.createVerticalStrut(30));
+        scoreLabel = new JLabel("Score: 0");
+        scoreLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        scoreLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        add(scoreLabel);
+        add(Box.createVerticalStrut(30));
+        timeLabel = new JLabel("Time: 0s");
+        timeLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        timeLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        add(timeLabel);
+        add(Box.createVerticalStrut(30));
+        nextPanel = new NextPiecePanel(gamePanel.getPreviewDepth());
+        nextPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        add(nextPanel);
+        add(Box.createVerticalStrut(30));
+        JButton endBtn = new JButton("End");
+        endBtn.setFont(new Font("Arial", Font.BOLD, 18));
+        endBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        endBtn.addActionListener(e -> { if (endListener != null) endListener.run(); });
+        add(endBtn);
+        add(Box.createVerticalStrut(10));
+        metricsText = new JTextArea();
+        metricsText.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 9));
+        metricsText.setEditable(false);
+        metricsText.setFocusable(false);
+        metricsText.setLineWrap(true);
+        metricsText.setMaximumSize(new Dimension(136, Integer.MAX_VALUE));
+        metricsText.setAlignmentX(Component.CENTER_ALIGNMENT);
+        metricsText.setVisible(false);
+        add(metricsText);
+        add(Box.createVerticalGlue());
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+        scoreLabel.setText("Score: " + score);
+    }
+
+    public void setTime(long seconds) {
+        this.time = (int) seconds;
+        timeLabel.setText("Time: " + time + "s");
+    }
+
+    public void setNext(int[] types) {
+        nextPanel.setTetrominoes(types);
+    }
+
+    // Debug metrics text, or null to hide it.
+    public void setMetrics(String text) {
+        metricsText.setVisible(text != null);
+        if (text != null) metricsText.setText(text);
+        revalidate();
+    }
+
+    public void setEndListener(Runnable r) {
+        this.endListener = r;
+    }
+}
+
+class NextPiecePanel extends JPanel {
+    private static final int FIRST_H = 100, SLOT_H = 50;
+    private final int[] types;
+
+    public NextPiecePanel(int depth) {
+        types = new int[depth];
+        Arrays.fill(types, -1);
+        setPreferredSize(new Dimension(100, FIRST_H + (depth - 1) * SLOT_H));
+        setMaximumSize(getPreferredSize());
+        setBackground(Color.WHITE);
+    }
+
+    public void setTetrominoes(int[] next) {
+        System.arraycopy(next, 0, types, 0, Math.min(next.length, types.length));
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        // The upcoming piece gets the full-size slot, later ones are drawn smaller below it
+        drawPiece(g, types[0], 0, FIRST_H, 20);
+        for (int k = 1; k < types.length; k++)
+            drawPiece(g, types[k], FIRST_H + (k - 1) * SLOT_H, SLOT_H, 12);
+    }
+
+    private void drawPiece(Graphics g, int type, int top, int height, int cell) {
+        if (type < 0) return;
+        int o = Tetromino.orientation(type, 0);
+        g.setColor(Tetromino.colors[Tetromino.color(type)]);
+        int minRow = Tetromino.minRow(o), minCol = Tetromino.minCol(o);
+        int offsetX = (getWidth() - (Tetromino.maxCol(o) - minCol + 1) * cell) / 2;
+        int offsetY = top + (height - (Tetromino.maxRow(o) - minRow + 1) * cell) / 2;
+        for (int i = minRow; i <= Tetromino.maxRow(o); i++)
+            for (long m = Tetromino.rowMask(o, i); m != 0; m &= m - 1)
+                g.fillRect(offsetX + (Long.numberOfTrailingZeros(m) - minCol) * cell, offsetY + (i - minRow) * cell, cell, cell);
+    }
+}
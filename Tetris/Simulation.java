@@ -0,0 +1,186 @@
+package Tetris;
+import Metrics.GameMetrics;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs a GameSession on its own fixed-timestep thread. Inputs arrive through its
+// InputQueue and are applied at the start of the next tick. After each tick that
+// changed something, the state is copied into a snapshot and published through a
+// triple buffer: the simulation and the renderer each own one buffer and swap
+// with the shared middle one through a single AtomicReference, so neither side
+// ever waits for the other.
+public final class Simulation {
+    public static final int DEFAULT_TICK_HZ = 60, DEFAULT_GRAVITY_TICKS = 24; // 400 ms per row
+    private static final long SPIN_NANOS = 200_000, MAX_LAG_NANOS = 250_000_000;
+
+    // Called on the simulation thread with the cell region (inclusive) that changed.
+    public interface DirtyListener {
+        void dirty(int top, int left, int bottom, int right, boolean statsChanged);
+    }
+
+    private final GameSession session;
+    private final GameMetrics metrics = GameMetrics.get("tetris");
+    private final TetrisEngine engine;
+    private final int tickHz;
+    private final AtomicReference<BoardSnapshot> middle;
+    private BoardSnapshot back, front;
+    private volatile boolean running;
+    private DirtyListener listener;
+    private volatile SpectatorServer.Feed feed;
+    private Thread thread;
+    private int lastVersion, lastOrientation, lastRow, lastCol, lastPieces;
+    private long lastSeconds;
+
+    public Simulation(TetrisEngine engine) {
+        this(engine, DEFAULT_TICK_HZ);
+    }
+
+    public Simulation(TetrisEngine engine, int tickHz) {
+        this.engine = engine;
+        this.tickHz = tickHz;
+        session = new GameSession(engine, DEFAULT_GRAVITY_TICKS);
+        int rows = engine.getRows(), cols = engine.getCols(), depth = engine.getPreviewDepth();
+        back = new BoardSnapshot(rows, cols, depth);
+        front = new BoardSnapshot(rows, cols, depth);
+        middle = new AtomicReference<>(new BoardSnapshot(rows, cols, depth));
+    }
+
+    public TetrisEngine getEngine() { return engine; }
+    public int getTickHz() { return tickHz; }
+    public InputHandler getInputHandler() { return session.getInputHandler(); }
+    public void setListener(DirtyListener listener) { this.listener = listener; }
+
+    // Rows fall one cell every this many ticks; smaller is faster.
+    public void setGravityTicks(int ticks) { session.setGravityTicks(ticks); }
+
+    // Called on the simulation thread every tick; null hands the game back to the keyboard.
+    public void setController(GameSession.Controller controller) { session.setController(controller); }
+
+    // Streams every tick to spectators; null stops streaming.
+    public void setFeed(SpectatorServer.Feed feed) { this.feed = feed; }
+
+    // Takes ownership of the writer and closes it when the game stops.
+    public void setRecorder(ReplayWriter recorder) { session.setRecorder(recorder); }
+
+    // Key state change (InputHandler.KEY_*), timestamped on arrival. Thread-safe for a
+    // single producer (the UI thread).
+    public boolean key(int key, boolean pressed) {
+        return session.key(key, pressed);
+    }
+
+    // Renderer side: returns the newest published snapshot. The returned buffer stays
+    // valid until the next call.
+    public BoardSnapshot acquire() {
+        if (middle.get().fresh) {
+            front.fresh = false;
+            front = middle.getAndSet(front);
+        }
+        return front;
+    }
+
+    // Resets the engine for a new game and starts ticking. Must not be called from the simulation thread.
+    public void start(long seed) {
+        stop();
+        session.reset(seed);
+        SpectatorServer.Feed f = feed;
+        if (f != null) f.reset();
+        lastVersion = -1;
+        publish();
+        running = true;
+        thread = new Thread(this::run, "tetris-sim");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        Thread t = thread;
+        if (t != null && t != Thread.currentThread()) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+        session.closeRecorder();
+    }
+
+    private void run() {
+        long period = 1_000_000_000L / tickHz, next = System.nanoTime() + period;
+        while (running) {
+            long now = System.nanoTime();
+            long wait = next - now;
+            if (wait > SPIN_NANOS) {
+                LockSupport.parkNanos(wait - SPIN_NANOS);
+                continue;
+            }
+            if (wait > 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long start = metrics.tickStart();
+            step();
+            metrics.tickEnd(start, now - next);
+            // After a long stall (debugger, suspend) resume from now instead of replaying every missed tick
+            next = now - next > MAX_LAG_NANOS ? now + period : next + period;
+            if (engine.isGameOver()) running = false;
+        }
+        session.closeRecorder();
+    }
+
+    // One fixed timestep, then publish if anything changed.
+    void step() {
+        session.step();
+        SpectatorServer.Feed f = feed;
+        if (f != null) f.publish(engine, session.getTick(), session.getTick() / tickHz);
+        publish();
+    }
+
+    private void publish() {
+        long tick = session.getTick(), seconds = tick / tickHz;
+        int o = engine.getOrientation(), row = engine.getCurRow(), col = engine.getCurCol();
+        boolean full = lastVersion == -1 || engine.isGameOver();
+        boolean boardChanged = engine.getVersion() != lastVersion;
+        boolean pieceMoved = o != lastOrientation || row != lastRow || col != lastCol;
+        boolean stats = seconds != lastSeconds || engine.getPieces() != lastPieces || full;
+        if (!full && !boardChanged && !pieceMoved && !stats) return;
+        back.copyFrom(engine, tick, seconds);
+        back.copyInputs(session.getInputCount(), session.getInputTimes());
+        back.fresh = true;
+        back = middle.getAndSet(back);
+
+        DirtyListener l = listener;
+        if (l != null) {
+            int rows = engine.getRows(), cols = engine.getCols();
+            if (full) {
+                l.dirty(0, 0, rows - 1, cols - 1, true);
+            } else {
+                // Old and new piece bounds, widened to full rows for any row the board changed in
+                int top = Math.min(lastRow + Tetromino.minRow(lastOrientation), row + Tetromino.minRow(o));
+                int bottom = Math.max(lastRow + Tetromino.maxRow(lastOrientation), row + Tetromino.maxRow(o));
+                int left = Math.min(lastCol + Tetromino.minCol(lastOrientation), col + Tetromino.minCol(o));
+                int right = Math.max(lastCol + Tetromino.maxCol(lastOrientation), col + Tetromino.maxCol(o));
+                if (boardChanged) {
+                    left = 0;
+                    right = cols - 1;
+                    for (int r = 0; r < rows; r++)
+                        if (engine.getRowVersion(r) > lastVersion) {
+                            top = Math.min(top, r);
+                            bottom = Math.max(bottom, r);
+                        }
+                }
+                if (!pieceMoved && !boardChanged) bottom = top - 1;
+                l.dirty(Math.max(top, 0), Math.max(left, 0), Math.min(bottom, rows - 1), Math.min(right, cols - 1), stats);
+            }
+        }
+        lastVersion = engine.getVersion();
+        lastOrientation = o;
+        lastRow = row;
+        lastCol = col;
+        lastPieces = engine.getPieces();
+        lastSeconds = seconds;
+    }
+}
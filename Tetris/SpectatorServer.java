@@ -0,0 +1,475 @@
+package Tetris;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Streams live games to spectators over TCP or a Unix-domain socket.
+//
+// Each game publishes through a Feed on the thread that steps it. The Feed encodes
+// a frame at most once per tick into a pooled direct buffer: a keyframe (whole
+// board) every keyframeInterval ticks and after a reset, otherwise a delta holding
+// only the rows whose version changed plus piece, score and time. A tick that
+// changed nothing sends nothing. Frames go to one selector thread, which queues
+// the same buffer for every subscriber (reference counted) and writes it with
+// gathering writes, so the per-spectator cost is a socket write, not an encode.
+//
+// Spectators start unsynced and pick up each game at its next keyframe. A client
+// whose queue fills up is downsampled: its queue is dropped and it resyncs at the
+// next keyframes. A client that keeps overflowing, or makes no write progress
+// for STALL_NANOS, is disconnected. A client may send a 4-byte game id to watch
+// one game only (-1 for all, the default).
+//
+// Frame layout (big-endian): int length of the rest, byte type (KEYFRAME/DELTA),
+// int game, long tick, int score, int lines, int seconds, byte piece, byte rotation,
+// short row, short col, byte gameOver, byte preview count + preview types; a
+// keyframe then has short rows, short cols; both end with short changed-row count
+// and per row a short index followed by cols cell bytes (color index, 0 empty).
+public final class SpectatorServer {
+    public static final byte KEYFRAME = 1, DELTA = 2;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 60, DEFAULT_QUEUE = 4096, DEFAULT_MAX_GAMES = 4096;
+    private static final int MAX_DOWNSAMPLES = 8, GATHER = 16;
+    // Length through preview count, keyframe dimensions and changed-row count
+    private static final int HEADER_BYTES = 43;
+    private static final long STALL_NANOS = 5_000_000_000L;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Path socketFile;
+    private final int frameCapacity, queueSize, maxGames;
+    private final ArrayDeque<Frame> pool = new ArrayDeque<>();
+    private final ConcurrentLinkedQueue<Frame> published = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final List<Client> clients = new ArrayList<>();
+    private final ByteBuffer[] gather = new ByteBuffer[GATHER];
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final LongAdder encoded = new LongAdder();
+    private volatile long bytesWritten, downsampled, disconnected, framesSent;
+    private volatile int clientCount;
+
+    // endpoint is "host:port", ":port" or "unix:/path/to/socket"; rows, cols and the
+    // preview depth bound the frame size.
+    public SpectatorServer(String endpoint, int rows, int cols, int preview) throws IOException {
+        this(endpoint, rows, cols, preview, DEFAULT_QUEUE, DEFAULT_MAX_GAMES);
+    }
+
+    public SpectatorServer(String endpoint, int rows, int cols, int preview, int queueSize, int maxGames) throws IOException {
+        this.queueSize = queueSize;
+        this.maxGames = maxGames;
+        frameCapacity = HEADER_BYTES + preview + rows * (2 + cols);
+        SocketAddress address;
+        if (endpoint.startsWith("unix:")) {
+            socketFile = Path.of(endpoint.substring(5));
+            Files.deleteIfExists(socketFile);
+            address = UnixDomainSocketAddress.of(socketFile);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            int colon = endpoint.lastIndexOf(':');
+            String host = colon <= 0 ? "127.0.0.1" : endpoint.substring(0, colon);
+            socketFile = null;
+            address = new InetSocketAddress(host, Integer.parseInt(endpoint.substring(colon + 1)));
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+        server.configureBlocking(false);
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "tetris-spectators");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Feed feed(int game) {
+        if (game < 0 || game >= maxGames) throw new IllegalArgumentException("Game id out of range: " + game);
+        return new Feed(game);
+    }
+
+    public int getClients() { return clientCount; }
+    public long getFramesEncoded() { return encoded.sum(); }
+    public long getFramesSent() { return framesSent; }
+    public long getBytesWritten() { return bytesWritten; }
+    public long getDownsampled() { return downsampled; }
+    public long getDisconnected() { return disconnected; }
+
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Frame obtain() {
+        synchronized (pool) {
+            Frame f = pool.poll();
+            if (f != null) return f;
+        }
+        return new Frame(frameCapacity);
+    }
+
+    private void recycle(Frame f) {
+        synchronized (pool) {
+            pool.push(f);
+        }
+    }
+
+    private void submit(Frame f) {
+        encoded.increment();
+        published.add(f);
+        // One wakeup per batch of frames rather than per frame
+        if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    static final class Frame {
+        final ByteBuffer buf;
+        final AtomicInteger refs = new AtomicInteger();
+        int game, length;
+        boolean keyframe;
+
+        Frame(int capacity) {
+            buf = ByteBuffer.allocateDirect(capacity);
+        }
+    }
+
+    // Producer side for one game. Not thread-safe: call publish() from the thread
+    // that steps the game, after each tick.
+    public final class Feed {
+        private final int game;
+        private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+        private int lastVersion = -1, lastScore, lastLines, lastOrientation, lastRow, lastCol, lastPiece;
+        private long lastTick, lastKeyTick, lastSeconds;
+        private boolean lastOver;
+
+        Feed(int game) {
+            this.game = game;
+        }
+
+        public void setKeyframeInterval(int ticks) { keyframeInterval = Math.max(1, ticks); }
+
+        // Sends a full frame with the next publish(), e.g. after the engine was reset.
+        public void reset() { lastVersion = -1; }
+
+        public void publish(TetrisEngine e, long tick, long seconds) {
+            if (clientCount == 0) {
+                // Nobody watching: skip encoding, but make the next frame a keyframe
+                lastVersion = -1;
+                return;
+            }
+            boolean key = lastVersion == -1 || tick < lastTick || tick - lastKeyTick >= keyframeInterval;
+            int o = e.getOrientation();
+            boolean changed = key || e.getVersion() != lastVersion || o != lastOrientation || e.getCurRow() != lastRow
+                    || e.getCurCol() != lastCol || e.getScore() != lastScore || e.getLines() != lastLines
+                    || seconds != lastSeconds || e.getPieces() != lastPiece || e.isGameOver() != lastOver;
+            lastTick = tick;
+            if (!changed) return;
+            Frame f = obtain();
+            ByteBuffer b = f.buf;
+            int rows = e.getRows(), cols = e.getCols();
+            b.clear();
+            b.putInt(0);
+            b.put(key ? KEYFRAME : DELTA).putInt(game).putLong(tick).putInt(e.getScore()).putInt(e.getLines()).putInt((int) seconds);
+            b.put((byte) e.getCurrent()).put((byte) e.getRotation()).putShort((short) e.getCurRow()).putShort((short) e.getCurCol());
+            b.put((byte) (e.isGameOver() ? 1 : 0));
+            int depth = e.getPreviewDepth();
+            b.put((byte) depth);
+            for (int i = 0; i < depth; i++) b.put((byte) e.getPreview(i));
+            if (key) b.putShort((short) rows).putShort((short) cols);
+            int countAt = b.position();
+            b.putShort((short) 0);
+            int count = 0;
+            for (int r = 0; r < rows; r++) {
+                if (!key && e.getRowVersion(r) <= lastVersion) continue;
+                b.putShort((short) r);
+                for (int c = 0; c < cols; c++) b.put((byte) e.getCell(r, c));
+                count++;
+            }
+            b.putShort(countAt, (short) count);
+            b.putInt(0, b.position() - 4);
+            f.length = b.position();
+            f.game = game;
+            f.keyframe = key;
+            if (key) lastKeyTick = tick;
+            lastVersion = e.getVersion();
+            lastOrientation = o;
+            lastRow = e.getCurRow();
+            lastCol = e.getCurCol();
+            lastScore = e.getScore();
+            lastLines = e.getLines();
+            lastSeconds = seconds;
+            lastPiece = e.getPieces();
+            lastOver = e.isGameOver();
+            submit(f);
+        }
+    }
+
+    private final class Client {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final Frame[] queue = new Frame[queueSize];
+        final long[] synced = new long[(maxGames + 63) >>> 6];
+        // Subscription request read so far; one may arrive split across reads
+        final ByteBuffer request = ByteBuffer.allocate(4);
+        int head, size, offset, filter = -1, overflows;
+        long lastProgress = System.nanoTime();
+
+        Client(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        boolean wants(Frame f) {
+            if (filter >= 0 && f.game != filter) return false;
+            int word = f.game >>> 6;
+            long bit = 1L << f.game;
+            if ((synced[word] & bit) != 0) return true;
+            if (!f.keyframe) return false;
+            synced[word] |= bit;
+            return true;
+        }
+
+        void offer(Frame f) {
+            if (size == queue.length) {
+                // Too slow: keep only the frame being written and resync from the next keyframes
+                downsampled++;
+                overflows++;
+                int keep = offset > 0 ? 1 : 0;
+                for (int i = keep; i < size; i++) release(queue[(head + i) % queue.length]);
+                size = keep;
+                Arrays.fill(synced, 0);
+                if (!wants(f)) return;
+            }
+            f.refs.incrementAndGet();
+            queue[(head + size++) % queue.length] = f;
+        }
+
+        // Returns false when the connection failed.
+        boolean flush(long now) {
+            while (size > 0) {
+                int n = Math.min(size, GATHER);
+                long want = 0;
+                for (int i = 0; i < n; i++) {
+                    Frame f = queue[(head + i) % queue.length];
+                    ByteBuffer b = f.buf;
+                    b.limit(f.length).position(i == 0 ? offset : 0);
+                    gather[i] = b;
+                    want += b.remaining();
+                }
+                long wrote;
+                try {
+                    wrote = channel.write(gather, 0, n);
+                } catch (IOException ex) {
+                    return false;
+                }
+                if (wrote > 0) {
+                    lastProgress = now;
+                    overflows = 0;
+                    bytesWritten += wrote;
+                }
+                int done = 0;
+                while (done < n && !gather[done].hasRemaining()) done++;
+                // Partly written frame stays at the head
+                offset = done < n ? gather[done].position() : 0;
+                for (int i = 0; i < done; i++) {
+                    release(queue[head]);
+                    queue[head] = null;
+                    head = (head + 1) % queue.length;
+                    size--;
+                    framesSent++;
+                }
+                if (wrote < want) break;
+            }
+            int ops = SelectionKey.OP_READ | (size > 0 ? SelectionKey.OP_WRITE : 0);
+            if (key.interestOps() != ops) key.interestOps(ops);
+            return true;
+        }
+
+        void close() {
+            for (int i = 0; i < size; i++) release(queue[(head + i) % queue.length]);
+            size = 0;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void release(Frame f) {
+        if (f.refs.decrementAndGet() == 0) recycle(f);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(100);
+                wakeupPending.set(false);
+                long now = System.nanoTime();
+                for (SelectionKey k : selector.selectedKeys()) {
+                    if (!k.isValid()) continue;
+                    if (k.isAcceptable()) accept();
+                    else if (k.isReadable()) read((Client) k.attachment());
+                }
+                selector.selectedKeys().clear();
+                for (Frame f; (f = published.poll()) != null; ) {
+                    f.refs.set(1);
+                    for (int i = 0; i < clients.size(); i++) {
+                        Client c = clients.get(i);
+                        if (c.wants(f)) c.offer(f);
+                    }
+                    release(f);
+                }
+                for (int i = clients.size() - 1; i >= 0; i--) {
+                    Client c = clients.get(i);
+                    boolean ok = c.key.isValid() && c.flush(now);
+                    if (!ok || c.overflows > MAX_DOWNSAMPLES || (c.size > 0 && now - c.lastProgress > STALL_NANOS)) drop(i);
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Spectator server stopped: " + ex);
+        } finally {
+            for (int i = clients.size() - 1; i >= 0; i--) drop(i);
+            for (Frame f; (f = published.poll()) != null; ) recycle(f);
+            try {
+                selector.close();
+                server.close();
+                if (socketFile != null) Files.deleteIfExists(socketFile);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null) {
+            ch.configureBlocking(false);
+            SelectionKey key = ch.register(selector, SelectionKey.OP_READ);
+            Client c = new Client(ch, key);
+            key.attach(c);
+            clients.add(c);
+            clientCount = clients.size();
+        }
+    }
+
+    // Subscription requests: 4-byte game ids, the last one wins.
+    private void read(Client c) {
+        try {
+            int n;
+            while ((n = c.channel.read(c.request)) > 0) {
+                if (c.request.hasRemaining()) continue;
+                c.filter = c.request.getInt(0);
+                c.request.clear();
+            }
+            if (n < 0) c.key.cancel();
+        } catch (IOException ex) {
+            c.key.cancel();
+        }
+    }
+
+    private void drop(int i) {
+        clients.remove(i).close();
+        clientCount = clients.size();
+        disconnected++;
+    }
+
+    // Demo and load test. "serve <endpoint> [games]" streams bot-played games;
+    // "watch <endpoint> [game] [seconds]" connects and reports frames and bytes per second.
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: SpectatorServer serve <endpoint> [games] | watch <endpoint> [game] [seconds]");
+            return;
+        }
+        if (args[0].equals("watch")) {
+            watch(args[1], args.length > 2 ? Integer.parseInt(args[2]) : -1, args.length > 3 ? Integer.parseInt(args[3]) : 10);
+            return;
+        }
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        SpectatorServer srv = new SpectatorServer(args[1], TetrisEngine.DEFAULT_ROWS, TetrisEngine.DEFAULT_COLS, TetrisEngine.DEFAULT_PREVIEW);
+        GameSession[] sessions = new GameSession[games];
+        Feed[] feeds = new Feed[games];
+        Bot bot = new Bot(TetrisEngine.DEFAULT_ROWS, TetrisEngine.DEFAULT_COLS, Evaluator.DEFAULT_WEIGHTS.clone(), 1, 2_000_000L, null);
+        for (int i = 0; i < games; i++) {
+            sessions[i] = new GameSession(new TetrisEngine(), Simulation.DEFAULT_GRAVITY_TICKS);
+            sessions[i].setController(new BotController(bot, 4));
+            sessions[i].reset(i);
+            feeds[i] = srv.feed(i);
+        }
+        System.out.println("Streaming " + games + " games on " + args[1]);
+        long period = 1_000_000_000L / Simulation.DEFAULT_TICK_HZ, next = System.nanoTime(), report = next + 1_000_000_000L;
+        long sent = 0, bytes = 0;
+        while (true) {
+            for (int i = 0; i < games; i++) {
+                GameSession s = sessions[i];
+                if (s.getEngine().isGameOver()) {
+                    s.reset(s.getEngine().getSeed() + games);
+                    feeds[i].reset();
+                }
+                s.step();
+                feeds[i].publish(s.getEngine(), s.getTick(), s.getTick() / Simulation.DEFAULT_TICK_HZ);
+            }
+            next += period;
+            LockSupport.parkNanos(next - System.nanoTime());
+            if (System.nanoTime() >= report) {
+                System.out.printf("clients=%d encoded=%d sent=%d/s %d KB/s downsampled=%d disconnected=%d%n", srv.getClients(),
+                        srv.getFramesEncoded(), srv.getFramesSent() - sent, (srv.getBytesWritten() - bytes) / 1024,
+                        srv.getDownsampled(), srv.getDisconnected());
+                sent = srv.getFramesSent();
+                bytes = srv.getBytesWritten();
+                report += 1_000_000_000L;
+            }
+        }
+    }
+
+    private static void watch(String endpoint, int game, int seconds) throws IOException {
+        SocketChannel ch;
+        if (endpoint.startsWith("unix:")) {
+            ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+            ch.connect(UnixDomainSocketAddress.of(endpoint.substring(5)));
+        } else {
+            int colon = endpoint.lastIndexOf(':');
+            ch = SocketChannel.open(new InetSocketAddress(colon <= 0 ? "127.0.0.1" : endpoint.substring(0, colon),
+                    Integer.parseInt(endpoint.substring(colon + 1))));
+        }
+        try (SocketChannel c = ch) {
+            if (game >= 0) c.write(ByteBuffer.allocate(4).putInt(0, game));
+            ByteBuffer in = ByteBuffer.allocate(1 << 16);
+            long end = System.nanoTime() + seconds * 1_000_000_000L, report = System.nanoTime() + 1_000_000_000L;
+            long frames = 0, keys = 0, bytes = 0;
+            while (System.nanoTime() < end && c.read(in) >= 0) {
+                in.flip();
+                while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                    int len = in.getInt();
+                    if (in.get(in.position()) == KEYFRAME) keys++;
+                    in.position(in.position() + len);
+                    frames++;
+                    bytes += 4 + len;
+                }
+                in.compact();
+                if (System.nanoTime() >= report) {
+                    System.out.printf("frames=%d/s keyframes=%d/s %d KB/s%n", frames, keys, bytes / 1024);
+                    frames = keys = bytes = 0;
+                    report += 1_000_000_000L;
+                }
+            }
+        }
+    }
+}
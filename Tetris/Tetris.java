@@ -1,8 +1,9 @@
 package Tetris;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
-import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.io.IOException;
+import java.nio.file.*;
 
 public class Tetris extends JFrame {
     private CardLayout cardLayout = new CardLayout();
@@ -19,7 +20,32 @@ public class Tetris extends JFrame {
         setResizable(false);
 
         menuPanel = new StartMenuPanel();
-        gamePanel = new TetrisPanel();
+        int preview = Integer.getInteger("tetris.preview", 3);
+        Randomizer randomizer = Randomizer.create(System.getProperty("tetris.randomizer", "uniform"), 0);
+        gamePanel = new TetrisPanel(new TetrisEngine(TetrisEngine.DEFAULT_ROWS, TetrisEngine.DEFAULT_COLS, randomizer, preview));
+        gamePanel.setSeed(Long.getLong("tetris.seed"));
+        InputHandler input = gamePanel.getInputHandler();
+        input.setDas(Integer.getInteger("tetris.das", InputHandler.DEFAULT_DAS));
+        input.setArr(Integer.getInteger("tetris.arr", InputHandler.DEFAULT_ARR));
+        input.setSoftDrop(Integer.getInteger("tetris.softdrop", InputHandler.DEFAULT_SOFT_DROP));
+        gamePanel.setGravityTicks(Integer.getInteger("tetris.gravity", Simulation.DEFAULT_GRAVITY_TICKS));
+        // -Dtetris.bot=true lets the search bot play, e.g. to watch or to record sample games
+        if (Boolean.getBoolean("tetris.bot")) {
+            Bot bot = new Bot(TetrisEngine.DEFAULT_ROWS, TetrisEngine.DEFAULT_COLS, Evaluator.DEFAULT_WEIGHTS.clone(),
+                    Integer.getInteger("tetris.botDepth", Bot.DEFAULT_DEPTH),
+                    Integer.getInteger("tetris.botBudgetMs", 8) * 1_000_000L, ForkJoinPool.commonPool());
+            gamePanel.setController(new BotController(bot, Integer.getInteger("tetris.botPace", 3)));
+        }
+        // -Dtetris.spectate=host:port or unix:/path streams this game to spectators
+        String spectate = System.getProperty("tetris.spectate");
+        if (spectate != null) {
+            try {
+                gamePanel.setFeed(new SpectatorServer(spectate, TetrisEngine.DEFAULT_ROWS, TetrisEngine.DEFAULT_COLS, preview).feed(0));
+            } catch (IOException ex) {
+                System.err.println("Spectator streaming disabled: " + ex);
+            }
+        }
+        if (System.getProperty("tetris.record") != null) gamePanel.setRecordDir(Paths.get(System.getProperty("tetris.record")));
         sidebar = new SidebarPanel(gamePanel);
         gamePanel.setSidebar(sidebar);
         sidebar.setEndListener(() -> endGame());
@@ -44,6 +70,7 @@ public class Tetris extends JFrame {
     }
 
     private void endGame() {
+        gamePanel.stopGame();
         int score = gamePanel.getScore();
         if (score > highScore) highScore = score;
         menuPanel.setHighScore(highScore);
@@ -89,277 +116,3 @@ public class Tetris extends JFrame {
         SwingUtilities.invokeLater(Tetris::new);
     }
 }
-
-class TetrisPanel extends JPanel implements ActionListener, KeyListener {
-    private final int ROWS = 20, COLS = 10, CELL = 30;
-    private javax.swing.Timer timer;
-    private int[][] board = new int[ROWS][COLS];
-    private Tetromino current, next;
-    private int curRow, curCol, score = 0;
-    private boolean gameOver = false;
-    private SidebarPanel sidebar;
-    private long startTime;
-    public int getScore() { return score; }
-
-    public TetrisPanel() {
-        setPreferredSize(new Dimension(COLS * CELL, ROWS * CELL));
-        setBackground(Color.BLACK);
-        setFocusable(true);
-        addKeyListener(this);
-    }
-
-    public void setSidebar(SidebarPanel sidebar) {
-        this.sidebar = sidebar;
-    }
-
-    public void startGame() {
-        Arrays.stream(board).forEach(row -> Arrays.fill(row, 0));
-        score = 0;
-        gameOver = false;
-        startTime = System.currentTimeMillis();
-        next = Tetromino.random();
-        spawnTetromino();
-        if (timer != null) timer.stop();
-        timer = new javax.swing.Timer(400, this);
-        timer.start();
-        requestFocusInWindow();
-    }
-
-    private void spawnTetromino() {
-        current = next;
-        next = Tetromino.random();
-        curRow = 0;
-        curCol = COLS / 2 - 2;
-        if (!canMove(current.shape, curRow, curCol)) {
-            timer.stop();
-            gameOver = true;
-        }
-        if (sidebar != null) sidebar.setNext(next);
-    }
-
-    private boolean canMove(int[][] shape, int r, int c) {
-        for (int i = 0; i < shape.length; i++)
-            for (int j = 0; j < shape[0].length; j++)
-                if (shape[i][j] != 0) {
-                    int nr = r + i, nc = c + j;
-                    if (nr < 0 || nr >= ROWS || nc < 0 || nc >= COLS || board[nr][nc] != 0)
-                        return false;
-                }
-        return true;
-    }
-
-    private void merge() {
-        for (int i = 0; i < current.shape.length; i++)
-            for (int j = 0; j < current.shape[0].length; j++)
-                if (current.shape[i][j] != 0)
-                    board[curRow + i][curCol + j] = current.color;
-    }
-
-    private void clearLines() {
-        int lines = 0;
-        for (int i = ROWS - 1; i >= 0; i--) {
-            boolean full = true;
-            for (int j = 0; j < COLS; j++)
-                if (board[i][j] == 0) full = false;
-            if (full) {
-                lines++;
-                for (int k = i; k > 0; k--)
-                    board[k] = Arrays.copyOf(board[k - 1], COLS);
-                Arrays.fill(board[0], 0);
-                i++;
-            }
-        }
-        if (lines > 0) score += (lines * lines) * 100;
-        if (sidebar != null) sidebar.setScore(score);
-    }
-
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (gameOver) return;
-        if (canMove(current.shape, curRow + 1, curCol)) {
-            curRow++;
-        } else {
-            merge();
-            clearLines();
-            spawnTetromino();
-        }
-        if (sidebar != null) sidebar.setTime((System.currentTimeMillis() - startTime) / 1000);
-        repaint();
-    }
-
-    @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        // Draw board
-        for (int i = 0; i < ROWS; i++)
-            for (int j = 0; j < COLS; j++)
-                if (board[i][j] != 0) {
-                    g.setColor(Tetromino.colors[board[i][j]]);
-                    g.fillRect(j * CELL, i * CELL, CELL, CELL);
-                    g.setColor(Color.DARK_GRAY);
-                    g.drawRect(j * CELL, i * CELL, CELL, CELL);
-                }
-        // Draw current tetromino
-        if (!gameOver) {
-            g.setColor(Tetromino.colors[current.color]);
-            for (int i = 0; i < current.shape.length; i++)
-                for (int j = 0; j < current.shape[0].length; j++)
-                    if (current.shape[i][j] != 0)
-                        g.fillRect((curCol + j) * CELL, (curRow + i) * CELL, CELL, CELL);
-        }
-        // Game over
-        if (gameOver) {
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Arial", Font.BOLD, 32));
-            g.drawString("Game Over", 30, getHeight() / 2);
-        }
-    }
-
-    @Override
-    public void keyPressed(KeyEvent e) {
-        if (gameOver) return;
-        int code = e.getKeyCode();
-        if (code == KeyEvent.VK_LEFT && canMove(current.shape, curRow, curCol - 1)) curCol--;
-        else if (code == KeyEvent.VK_RIGHT && canMove(current.shape, curRow, curCol + 1)) curCol++;
-        else if (code == KeyEvent.VK_DOWN && canMove(current.shape, curRow + 1, curCol)) curRow++;
-        else if (code == KeyEvent.VK_UP) {
-            int[][] rotated = current.rotate();
-            if (canMove(rotated, curRow, curCol)) current.shape = rotated;
-        } else if (code == KeyEvent.VK_SPACE) {
-            while (canMove(current.shape, curRow + 1, curCol)) curRow++;
-            actionPerformed(null);
-        }
-        repaint();
-    }
-
-    @Override public void keyReleased(KeyEvent e) {}
-    @Override public void keyTyped(KeyEvent e) {}
-}
-
-class SidebarPanel extends JPanel {
-    private JLabel scoreLabel, timeLabel;
-    private NextPiecePanel nextPanel;
-    private int score = 0, time = 0;
-    private Runnable endListener;
-
-    public SidebarPanel(TetrisPanel gamePanel) {
-        setPreferredSize(new Dimension(140, 600));
-        setBackground(Color.LIGHT_GRAY);
-        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
-        add(Box.createVerticalStrut(30));
-        scoreLabel = new JLabel("Score: 0");
-        scoreLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        scoreLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-        add(scoreLabel);
-        add(Box.createVerticalStrut(30));
-        timeLabel = new JLabel("Time: 0s");
-        timeLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        timeLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-        add(timeLabel);
-        add(Box.createVerticalStrut(30));
-        nextPanel = new NextPiecePanel();
-        nextPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
-        add(nextPanel);
-        add(Box.createVerticalStrut(30));
-        JButton endBtn = new JButton("End");
-        endBtn.setFont(new Font("Arial", Font.BOLD, 18));
-        endBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
-        endBtn.addActionListener(e -> { if (endListener != null) endListener.run(); });
-        add(endBtn);
-        add(Box.createVerticalGlue());
-    }
-
-    public void setScore(int score) {
-        this.score = score;
-        scoreLabel.setText("Score: " + score);
-    }
-
-    public void setTime(long seconds) {
-        this.time = (int) seconds;
-        timeLabel.setText("Time: " + time + "s");
-    }
-
-    public void setNext(Tetromino next) {
-        nextPanel.setTetromino(next);
-    }
-
-    public void setEndListener(Runnable r) {
-        this.endListener = r;
-    }
-}
-
-class NextPiecePanel extends JPanel {
-    private Tetromino tetromino;
-
-    public NextPiecePanel() {
-        setPreferredSize(new Dimension(100, 100));
-        setBackground(Color.WHITE);
-    }
-
-    public void setTetromino(Tetromino t) {
-        this.tetromino = t;
-        repaint();
-    }
-
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        if (tetromino == null) return;
-        int[][] shape = tetromino.shape;
-        g.setColor(Tetromino.colors[tetromino.color]);
-        int cell = 20;
-        int offsetX = (getWidth() - shape[0].length * cell) / 2;
-        int offsetY = (getHeight() - shape.length * cell) / 2;
-        for (int i = 0; i < shape.length; i++)
-            for (int j = 0; j < shape[0].length; j++)
-                if (shape[i][j] != 0)
-                    g.fillRect(offsetX + j * cell, offsetY + i * cell, cell, cell);
-    }
-}
-
-class Tetromino {
-    public int[][] shape;
-    public int color;
-    private static final int[][][] SHAPES = {
-        // I
-        {{0,0,0,0},{1,1,1,1},{0,0,0,0},{0,0,0,0}},
-        // J
-        {{2,0,0},{2,2,2},{0,0,0}},
-        // L
-        {{0,0,3},{3,3,3},{0,0,0}},
-        // O
-        {{4,4},{4,4}},
-        // S
-        {{0,5,5},{5,5,0},{0,0,0}},
-        // T
-        {{0,6,0},{6,6,6},{0,0,0}},
-        // Z
-        {{7,7,0},{0,7,7},{0,0,0}}
-    };
-    public static final Color[] colors = {
-        Color.BLACK, Color.CYAN, Color.BLUE, Color.ORANGE,
-        Color.YELLOW, Color.GREEN, Color.MAGENTA, Color.RED
-    };
-
-    public Tetromino(int[][] shape, int color) {
-        this.shape = shape;
-        this.color = color;
-    }
-
-    public static Tetromino random() {
-        int idx = new Random().nextInt(SHAPES.length);
-        int[][] s = new int[SHAPES[idx].length][];
-        for (int i = 0; i < SHAPES[idx].length; i++)
-            s[i] = Arrays.copyOf(SHAPES[idx][i], SHAPES[idx][i].length);
-        return new Tetromino(s, idx + 1);
-    }
-
-    public int[][] rotate() {
-        int n = shape.length, m = shape[0].length;
-        int[][] res = new int[m][n];
-        for (int i = 0; i < n; i++)
-            for (int j = 0; j < m; j++)
-                res[j][n - 1 - i] = shape[i][j];
-        return res;
-    }
-}
@@ -0,0 +1,122 @@
+package Tetris;
+import Bench.Harness;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+// Tetris hot paths for Bench.Harness. Fixtures are built from fixed seeds so every
+// run measures the same boards: a mid-game board from 40 greedy pieces, a table of
+// collision probes over it, and for 0-4 lines a board where a vertical I piece
+// dropped into the left column completes exactly that many rows.
+public final class TetrisBench {
+    private static final int ROWS = TetrisEngine.DEFAULT_ROWS, COLS = TetrisEngine.DEFAULT_COLS, PROBES = 1024;
+
+    private TetrisBench() {}
+
+    static TetrisEngine engine() {
+        return new TetrisEngine(ROWS, COLS, Randomizer.create("uniform", 0), 3);
+    }
+
+    // State after 40 greedy pieces from seed 1.
+    static ByteBuffer midGame() {
+        TetrisEngine e = engine();
+        e.reset(1);
+        Policy p = Policy.create("greedy", ROWS, COLS, Evaluator.DEFAULT_WEIGHTS.clone());
+        while (e.getPieces() < 40 && !e.isGameOver()) p.play(e);
+        ByteBuffer buf = ByteBuffer.allocate(e.getStateSize());
+        e.writeState(buf);
+        return buf.flip();
+    }
+
+    // State whose active piece is an I; locking it upright in column 0 at the bottom clears the given number of rows.
+    static ByteBuffer linesFixture(int lines) {
+        TetrisEngine e = engine();
+        long seed = 0;
+        do e.reset(seed++); while (e.getCurrent() != 0);
+        ByteBuffer buf = ByteBuffer.allocate(e.getStateSize());
+        e.writeState(buf);
+        // Cells are the last rows * cols bytes of the state
+        int cells = buf.position() - ROWS * COLS;
+        for (int i = 0; i < 4; i++) {
+            int r = ROWS - 1 - i;
+            for (int c = 1; c < COLS; c++) buf.put(cells + r * COLS + c, (byte) (i >= lines && c == COLS / 2 ? 0 : 2));
+        }
+        return buf.flip();
+    }
+
+    public static void run(Harness h) {
+        ByteBuffer mid = midGame();
+        TetrisEngine e = engine();
+        e.readState(mid.duplicate());
+
+        Xoshiro rng = new Xoshiro(42);
+        int[] po = new int[PROBES], pr = new int[PROBES], pc = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            po[i] = rng.nextInt(Tetromino.COUNT * Tetromino.ROTATIONS);
+            pr[i] = rng.nextInt(ROWS + 2) - 2;
+            pc[i] = rng.nextInt(COLS + 3) - 3;
+        }
+        h.run("tetris.canMove", ops -> {
+            long hits = 0;
+            for (long i = 0; i < ops; i++) {
+                int k = (int) (i & (PROBES - 1));
+                if (e.canMove(po[k], pr[k], pc[k])) hits++;
+            }
+            return hits;
+        });
+
+        h.run("tetris.rotate", ops -> {
+            long n = 0;
+            for (long i = 0; i < ops; i++) if (e.rotate()) n++;
+            return n;
+        });
+
+        ByteBuffer restore = mid.duplicate();
+        h.run("tetris.readState", ops -> {
+            for (long i = 0; i < ops; i++) {
+                restore.rewind();
+                e.readState(restore);
+            }
+            return e.getPieces();
+        });
+
+        // readState + merge + clearLines + spawn; subtract tetris.readState for the lock itself
+        int o = Tetromino.orientation(0, 1), col = -Tetromino.minCol(o), row = ROWS - 1 - Tetromino.maxRow(o);
+        for (int lines = 0; lines <= 4; lines++) {
+            ByteBuffer fixture = linesFixture(lines);
+            h.run("tetris.lock+clear" + lines, ops -> {
+                long cleared = 0;
+                for (long i = 0; i < ops; i++) {
+                    fixture.rewind();
+                    e.readState(fixture);
+                    e.lockAt(1, row, col);
+                    cleared += e.getLines();
+                }
+                return cleared;
+            });
+        }
+
+        for (String kind : new String[] {"uniform", "bag"}) {
+            Randomizer r = Randomizer.create(kind, 7);
+            h.run("tetris.randomizer." + kind, ops -> {
+                long s = 0;
+                for (long i = 0; i < ops; i++) s += r.next();
+                return s;
+            });
+        }
+
+        // Full panel paint onto an offscreen image, board cache warm
+        TetrisEngine pe = engine();
+        TetrisPanel panel = new TetrisPanel(pe);
+        pe.readState(mid.duplicate());
+        panel.getSimulation().step();
+        panel.setSize(COLS * 30, ROWS * 30);
+        BufferedImage img = new BufferedImage(COLS * 30, ROWS * 30, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        h.run("tetris.paintComponent", ops -> {
+            for (long i = 0; i < ops; i++) panel.paintComponent(g);
+            return img.getRGB(15, 15);
+        });
+        g.dispose();
+    }
+}
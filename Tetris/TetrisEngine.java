@@ -0,0 +1,295 @@
+package Tetris;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Swing-free game rules. Each board row is a bitmask (bit c = column c) with a
+// per-row fill count, so collision and line clears are a few mask operations.
+public class TetrisEngine {
+    public static final int DEFAULT_ROWS = 20, DEFAULT_COLS = 10, MAX_COLS = 64, DEFAULT_PREVIEW = 1;
+    // Player and gravity actions, as accepted by apply() and stored in replays
+    public static final int LEFT = 0, RIGHT = 1, SOFT_DROP = 2, ROTATE = 3, HARD_DROP = 4, GRAVITY = 5, ACTIONS = 6;
+
+    private final int rows, cols;
+    private final long[] rowBits;
+    private final int[] rowFill;
+    private final byte[] cells; // color per cell, row-major
+    // Change stamps so views can redraw only rows touched since they last looked
+    private final int[] rowVersion;
+    private int version;
+    private final PreviewQueue preview;
+    private long seed;
+    private int current, rotation;
+    private int curRow, curCol, score, lines, pieces;
+    private boolean gameOver = true;
+
+    public TetrisEngine() {
+        this(DEFAULT_ROWS, DEFAULT_COLS);
+    }
+
+    public TetrisEngine(int rows, int cols) {
+        this(rows, cols, new Randomizer.Uniform(0), DEFAULT_PREVIEW);
+    }
+
+    public TetrisEngine(int rows, int cols, Randomizer randomizer, int previewDepth) {
+        if (rows < 4 || cols < 4 || cols > MAX_COLS)
+            throw new IllegalArgumentException("Unsupported board size " + rows + "x" + cols);
+        this.rows = rows;
+        this.cols = cols;
+        rowBits = new long[rows];
+        rowFill = new int[rows];
+        cells = new byte[rows * cols];
+        rowVersion = new int[rows];
+        preview = new PreviewQueue(randomizer, previewDepth);
+    }
+
+    public void reset() {
+        reset(ThreadLocalRandom.current().nextLong());
+    }
+
+    // Starts a new game whose piece sequence is fully determined by the seed.
+    public void reset(long seed) {
+        this.seed = seed;
+        Arrays.fill(rowBits, 0);
+        Arrays.fill(rowFill, 0);
+        Arrays.fill(cells, (byte) 0);
+        touchAll();
+        score = lines = pieces = 0;
+        gameOver = false;
+        preview.reset(seed);
+        spawn();
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getScore() { return score; }
+    public int getLines() { return lines; }
+    public int getPieces() { return pieces; }
+    public boolean isGameOver() { return gameOver; }
+    public int getCurrent() { return current; }
+    public int getRotation() { return rotation; }
+    public int getOrientation() { return Tetromino.orientation(current, rotation); }
+    public int getNext() { return preview.peek(0); }
+    public int getPreview(int i) { return preview.peek(i); }
+    public int getPreviewDepth() { return preview.getDepth(); }
+    public long getSeed() { return seed; }
+    public int getCurRow() { return curRow; }
+    public int getCurCol() { return curCol; }
+    public long getRowBits(int r) { return rowBits[r]; }
+    public int getRowFill(int r) { return rowFill[r]; }
+    public int getCell(int r, int c) { return cells[r * cols + c]; }
+    public void copyRow(int r, byte[] dst) { System.arraycopy(cells, r * cols, dst, r * cols, cols); }
+    public int getVersion() { return version; }
+    public int getRowVersion(int r) { return rowVersion[r]; }
+
+    private void touch(int r) {
+        rowVersion[r] = ++version;
+    }
+
+    private void touchAll() {
+        version++;
+        Arrays.fill(rowVersion, version);
+    }
+
+    public Randomizer getRandomizer() { return preview.getRandomizer(); }
+
+    public boolean apply(int action) {
+        switch (action) {
+            case LEFT: return moveLeft();
+            case RIGHT: return moveRight();
+            case SOFT_DROP: return softDrop();
+            case ROTATE: return rotate();
+            case HARD_DROP: hardDrop(); return true;
+            case GRAVITY: tick(); return true;
+            default: throw new IllegalArgumentException("Unknown action " + action);
+        }
+    }
+
+    public boolean moveLeft() { return shift(0, -1); }
+    public boolean moveRight() { return shift(0, 1); }
+    public boolean softDrop() { return shift(1, 0); }
+
+    public boolean rotate() {
+        if (gameOver) return false;
+        int r = Tetromino.rotateCW(rotation);
+        if (!canMove(Tetromino.orientation(current, r), curRow, curCol)) return false;
+        rotation = r;
+        return true;
+    }
+
+    // Gravity step: fall one row or lock the piece and spawn the next one.
+    public void tick() {
+        if (gameOver) return;
+        if (canMove(getOrientation(), curRow + 1, curCol)) {
+            curRow++;
+        } else {
+            merge();
+            clearLines();
+            spawn();
+        }
+    }
+
+    public void hardDrop() {
+        if (gameOver) return;
+        int o = getOrientation();
+        while (canMove(o, curRow + 1, curCol)) curRow++;
+        tick();
+    }
+
+    // Row where the active piece would lock after rotating to the given rotation and
+    // shifting to the column from where it is now (rotations first, then shifts, then
+    // a straight drop), or -1 when that path is blocked.
+    public int landingRow(int rotation, int col) {
+        if (gameOver) return -1;
+        int r = this.rotation, o = getOrientation();
+        while (r != rotation) {
+            r = Tetromino.rotateCW(r);
+            o = Tetromino.orientation(current, r);
+            if (!canMove(o, curRow, curCol)) return -1;
+        }
+        int step = col > curCol ? 1 : -1;
+        for (int c = curCol; c != col; c += step)
+            if (!canMove(o, curRow, c + step)) return -1;
+        int row = curRow;
+        while (canMove(o, row + 1, col)) row++;
+        return row;
+    }
+
+    // Moves the active piece along the landingRow path and locks it there.
+    public boolean placeAt(int rotation, int col) {
+        int row = landingRow(rotation, col);
+        if (row < 0) return false;
+        this.rotation = rotation;
+        curCol = col;
+        curRow = row;
+        tick();
+        return true;
+    }
+
+    // Locks the active piece at a resting position found by a search (which is
+    // responsible for it being reachable). Returns false if it does not fit or would not rest there.
+    public boolean lockAt(int rotation, int row, int col) {
+        int o = Tetromino.orientation(current, rotation);
+        if (gameOver || !canMove(o, row, col) || canMove(o, row + 1, col)) return false;
+        this.rotation = rotation;
+        curRow = row;
+        curCol = col;
+        tick();
+        return true;
+    }
+
+    private boolean shift(int dr, int dc) {
+        if (gameOver || !canMove(getOrientation(), curRow + dr, curCol + dc)) return false;
+        curRow += dr;
+        curCol += dc;
+        return true;
+    }
+
+    private void spawn() {
+        current = preview.take();
+        rotation = 0;
+        curRow = 0;
+        curCol = cols / 2 - 2;
+        if (!canMove(getOrientation(), curRow, curCol)) gameOver = true;
+    }
+
+    static long shift(long mask, int c) {
+        return c >= 0 ? mask << c : mask >>> -c;
+    }
+
+    public boolean canMove(int orientation, int r, int c) {
+        return fits(rowBits, rows, cols, orientation, r, c);
+    }
+
+    // Collision test against any board held as row masks; shared with the search code.
+    static boolean fits(long[] board, int rows, int cols, int orientation, int r, int c) {
+        int top = Tetromino.minRow(orientation), bottom = Tetromino.maxRow(orientation);
+        if (r + top < 0 || r + bottom >= rows) return false;
+        if (c + Tetromino.minCol(orientation) < 0 || c + Tetromino.maxCol(orientation) >= cols) return false;
+        for (int i = top; i <= bottom; i++)
+            if ((board[r + i] & shift(Tetromino.rowMask(orientation, i), c)) != 0) return false;
+        return true;
+    }
+
+    private void merge() {
+        int o = getOrientation();
+        byte color = (byte) Tetromino.color(current);
+        for (int i = Tetromino.minRow(o); i <= Tetromino.maxRow(o); i++) {
+            long m = shift(Tetromino.rowMask(o, i), curCol);
+            int r = curRow + i;
+            rowBits[r] |= m;
+            rowFill[r] += Long.bitCount(m);
+            for (; m != 0; m &= m - 1) cells[r * cols + Long.numberOfTrailingZeros(m)] = color;
+            touch(r);
+        }
+        pieces++;
+    }
+
+    // Compacts surviving rows downward in place; no row arrays are allocated.
+    private int clearLines() {
+        int o = getOrientation();
+        int top = curRow + Tetromino.minRow(o), bottom = curRow + Tetromino.maxRow(o);
+        boolean any = false;
+        for (int r = top; r <= bottom && !any; r++) any = rowFill[r] == cols;
+        if (!any) return 0;
+        int cleared = 0, w = bottom;
+        for (int r = bottom; r >= 0; r--) {
+            if (rowFill[r] == cols) {
+                cleared++;
+                continue;
+            }
+            if (w != r) {
+                rowBits[w] = rowBits[r];
+                rowFill[w] = rowFill[r];
+                System.arraycopy(cells, r * cols, cells, w * cols, cols);
+                touch(w);
+            }
+            w--;
+        }
+        for (int r = w; r >= 0; r--) {
+            if (rowFill[r] == 0) continue;
+            rowBits[r] = 0;
+            rowFill[r] = 0;
+            Arrays.fill(cells, r * cols, (r + 1) * cols, (byte) 0);
+            touch(r);
+        }
+        lines += cleared;
+        score += (cleared * cleared) * 100;
+        return cleared;
+    }
+
+    // Upper bound on the bytes written by writeState.
+    public int getStateSize() {
+        return 128 + preview.getDepth() + rows * cols;
+    }
+
+    // Full game state for replay keyframes. Row masks and fill counts are rebuilt from the cells.
+    public void writeState(ByteBuffer buf) {
+        buf.putLong(seed).putInt(score).putInt(lines).putInt(pieces);
+        buf.put((byte) current).put((byte) rotation).putInt(curRow).putInt(curCol).put((byte) (gameOver ? 1 : 0));
+        preview.writeState(buf);
+        buf.put(cells);
+    }
+
+    public void readState(ByteBuffer buf) {
+        seed = buf.getLong();
+        score = buf.getInt();
+        lines = buf.getInt();
+        pieces = buf.getInt();
+        current = buf.get();
+        rotation = buf.get();
+        curRow = buf.getInt();
+        curCol = buf.getInt();
+        gameOver = buf.get() != 0;
+        preview.readState(buf);
+        buf.get(cells);
+        for (int r = 0; r < rows; r++) {
+            long bits = 0;
+            for (int c = 0; c < cols; c++)
+                if (cells[r * cols + c] != 0) bits |= 1L << c;
+            rowBits[r] = bits;
+            rowFill[r] = Long.bitCount(bits);
+        }
+        touchAll();
+    }
+}
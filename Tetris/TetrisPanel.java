@@ -0,0 +1,260 @@
+package Tetris;
+import Metrics.GameMetrics;
+import Metrics.LatencyHistogram;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.IOException;
+import java.nio.file.*;
+
+class TetrisPanel extends JPanel implements KeyListener, Simulation.DirtyListener {
+    private static final Font GAME_OVER_FONT = new Font("Arial", Font.BOLD, 32);
+    private final int CELL = 30;
+    private final Simulation sim;
+    private final int rows, cols;
+    private SidebarPanel sidebar;
+    private final AtomicBoolean sidebarQueued = new AtomicBoolean();
+    private int shownPieces = -1;
+    private long shownSeconds = -1;
+    private boolean showMetrics;
+    private Long seed;
+    private final int[] previewTypes;
+    private Path recordDir;
+    private BoardSnapshot snapshot;
+    private Image boardImage;
+    private final int[] paintedVersion;
+    private int paintedGlobal = -1;
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
+    private long seenInputs;
+    private final GameMetrics metrics = GameMetrics.get("tetris");
+    public int getPreviewDepth() { return previewTypes.length; }
+    public InputHandler getInputHandler() { return sim.getInputHandler(); }
+
+    // Time from a key event to the end of the first paint that shows its effect.
+    public LatencyHistogram getInputLatency() { return inputLatency; }
+    Simulation getSimulation() { return sim; }
+
+    // Only meaningful once the game has stopped.
+    public int getScore() { return sim.getEngine().getScore(); }
+
+    public TetrisPanel() {
+        this(new TetrisEngine());
+    }
+
+    public TetrisPanel(TetrisEngine engine) {
+        sim = new Simulation(engine);
+        sim.setListener(this);
+        rows = engine.getRows();
+        cols = engine.getCols();
+        previewTypes = new int[engine.getPreviewDepth()];
+        paintedVersion = new int[rows];
+        snapshot = sim.acquire();
+        setPreferredSize(new Dimension(cols * CELL, rows * CELL));
+        setBackground(Color.BLACK);
+        setFocusable(true);
+        addKeyListener(this);
+    }
+
+    public void setSidebar(SidebarPanel sidebar) {
+        this.sidebar = sidebar;
+    }
+
+    // Fixed seed for every game (reproducible runs); null picks a fresh seed per game.
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    // Directory that receives one replay file per game; null disables recording.
+    public void setRecordDir(Path dir) {
+        this.recordDir = dir;
+    }
+
+    public void setGravityTicks(int ticks) {
+        sim.setGravityTicks(ticks);
+    }
+
+    public void setController(GameSession.Controller controller) {
+        sim.setController(controller);
+    }
+
+    public void setFeed(SpectatorServer.Feed feed) {
+        sim.setFeed(feed);
+    }
+
+    public void startGame() {
+        sim.stop();
+        TetrisEngine engine = sim.getEngine();
+        engine.reset(seed != null ? seed : ThreadLocalRandom.current().nextLong());
+        if (recordDir != null) {
+            try {
+                Files.createDirectories(recordDir);
+                sim.setRecorder(new ReplayWriter(recordDir.resolve("tetris-" + System.currentTimeMillis() + ".trpl"), engine));
+            } catch (IOException ex) {
+                System.err.println("Replay recording disabled: " + ex);
+            }
+        }
+        shownPieces = -1;
+        shownSeconds = -1;
+        seenInputs = 0;
+        sim.start(engine.getSeed());
+        requestFocusInWindow();
+    }
+
+    public void stopGame() {
+        sim.stop();
+    }
+
+    // Called on the simulation thread; repaint() is safe from any thread and coalesces
+    // the regions until the EDT paints.
+    @Override
+    public void dirty(int top, int left, int bottom, int right, boolean statsChanged) {
+        if (bottom >= top) repaint(left * CELL, top * CELL, (right - left + 1) * CELL, (bottom - top + 1) * CELL);
+        if (statsChanged && sidebarQueued.compareAndSet(false, true)) SwingUtilities.invokeLater(this::syncSidebar);
+    }
+
+    private void syncSidebar() {
+        sidebarQueued.set(false);
+        BoardSnapshot s = snapshot = sim.acquire();
+        if (s.isGameOver()) repaint();
+        if (sidebar == null) return;
+        if (shownSeconds != s.getSeconds()) {
+            shownSeconds = s.getSeconds();
+            sidebar.setTime(shownSeconds);
+            if (showMetrics) showMetrics();
+        }
+        if (shownPieces == s.getPieces()) return;
+        shownPieces = s.getPieces();
+        sidebar.setScore(s.getScore());
+        for (int i = 0; i < previewTypes.length; i++) previewTypes[i] = s.getPreview(i);
+        sidebar.setNext(previewTypes);
+    }
+
+    // F3 overlay in the sidebar, refreshed once a second while shown
+    private void showMetrics() {
+        if (sidebar != null) sidebar.setMetrics("input " + inputLatency.summary() + "\n" + metrics.getSummary());
+    }
+
+    @Override
+    public void paintComponent(Graphics g) {
+        long start = metrics.paintStart();
+        super.paintComponent(g);
+        BoardSnapshot s = snapshot = sim.acquire();
+        drawBoard(g, s);
+        // Draw current tetromino
+        if (!s.isGameOver()) {
+            int o = s.getOrientation(), curRow = s.getCurRow(), curCol = s.getCurCol();
+            g.setColor(Tetromino.colors[Tetromino.color(s.getCurrent())]);
+            for (int i = Tetromino.minRow(o); i <= Tetromino.maxRow(o); i++)
+                for (long m = Tetromino.rowMask(o, i); m != 0; m &= m - 1)
+                    g.fillRect((curCol + Long.numberOfTrailingZeros(m)) * CELL, (curRow + i) * CELL, CELL, CELL);
+        }
+        // Game over
+        if (s.isGameOver()) {
+            g.setColor(Color.WHITE);
+            g.setFont(GAME_OVER_FONT);
+            g.drawString("Game Over", 30, getHeight() / 2);
+        }
+        recordLatency(s);
+        metrics.paintEnd(start);
+    }
+
+    private void recordLatency(BoardSnapshot s) {
+        long count = s.getInputCount();
+        if (count == seenInputs) return;
+        long now = System.nanoTime();
+        for (long n = Math.max(seenInputs + 1, count - GameSession.INPUT_HISTORY + 1); n <= count; n++)
+            inputLatency.record(now - s.getInputTime(n));
+        seenInputs = count;
+    }
+
+    // Locked cells live in a cached image (accelerated when a screen is available)
+    // and only rows whose version changed since the last paint are re-rendered.
+    private void drawBoard(Graphics g, BoardSnapshot s) {
+        int w = cols * CELL, h = rows * CELL;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            if (!(boardImage instanceof BufferedImage)) {
+                boardImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+                paintedGlobal = -1;
+            }
+            renderRows(s);
+            g.drawImage(boardImage, 0, 0, null);
+            return;
+        }
+        VolatileImage vi;
+        do {
+            if (!(boardImage instanceof VolatileImage)) {
+                boardImage = gc.createCompatibleVolatileImage(w, h);
+                paintedGlobal = -1;
+            }
+            vi = (VolatileImage) boardImage;
+            int status = vi.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                boardImage = vi = gc.createCompatibleVolatileImage(w, h);
+                paintedGlobal = -1;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                paintedGlobal = -1;
+            }
+            renderRows(s);
+            g.drawImage(vi, 0, 0, null);
+        } while (vi.contentsLost());
+    }
+
+    private void renderRows(BoardSnapshot s) {
+        if (paintedGlobal == s.getVersion()) return;
+        boolean all = paintedGlobal == -1;
+        Graphics bg = boardImage.getGraphics();
+        for (int i = 0; i < rows; i++) {
+            int v = s.getRowVersion(i);
+            if (!all && v == paintedVersion[i]) continue;
+            paintedVersion[i] = v;
+            bg.setColor(Color.BLACK);
+            bg.fillRect(0, i * CELL, cols * CELL, CELL);
+            if (s.getRowFill(i) == 0) continue;
+            for (int j = 0; j < cols; j++)
+                if (s.getCell(i, j) != 0) {
+                    bg.setColor(Tetromino.colors[s.getCell(i, j)]);
+                    bg.fillRect(j * CELL, i * CELL, CELL, CELL);
+                    bg.setColor(Color.DARK_GRAY);
+                    bg.drawRect(j * CELL, i * CELL, CELL - 1, CELL - 1);
+                }
+        }
+        bg.dispose();
+        paintedGlobal = s.getVersion();
+    }
+
+    private static int keyFor(int code) {
+        switch (code) {
+            case KeyEvent.VK_LEFT: return InputHandler.KEY_LEFT;
+            case KeyEvent.VK_RIGHT: return InputHandler.KEY_RIGHT;
+            case KeyEvent.VK_DOWN: return InputHandler.KEY_SOFT_DROP;
+            case KeyEvent.VK_UP: return InputHandler.KEY_ROTATE;
+            case KeyEvent.VK_SPACE: return InputHandler.KEY_HARD_DROP;
+            default: return -1;
+        }
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        metrics.event();
+        if (e.getKeyCode() == KeyEvent.VK_F3) {
+            showMetrics = !showMetrics;
+            if (showMetrics) showMetrics();
+            else if (sidebar != null) sidebar.setMetrics(null);
+        }
+        int key = keyFor(e.getKeyCode());
+        if (key >= 0) sim.key(key, true);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        metrics.event();
+        int key = keyFor(e.getKeyCode());
+        if (key >= 0) sim.key(key, false);
+    }
+
+    @Override public void keyTyped(KeyEvent e) {}
+}
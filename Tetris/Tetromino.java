@@ -0,0 +1,75 @@
+package Tetris;
+import java.awt.Color;
+
+// Immutable piece catalog. A piece is just a (type, rotation) pair of ints; every
+// orientation is precomputed once as packed row masks with its bounding box.
+public final class Tetromino {
+    public static final int COUNT = 7, ROTATIONS = 4, SIZE = 4;
+    private static final int[][][] SHAPES = {
+        // I
+        {{0,0,0,0},{1,1,1,1},{0,0,0,0},{0,0,0,0}},
+        // J
+        {{2,0,0},{2,2,2},{0,0,0}},
+        // L
+        {{0,0,3},{3,3,3},{0,0,0}},
+        // O
+        {{4,4},{4,4}},
+        // S
+        {{0,5,5},{5,5,0},{0,0,0}},
+        // T
+        {{0,6,0},{6,6,6},{0,0,0}},
+        // Z
+        {{7,7,0},{0,7,7},{0,0,0}}
+    };
+    public static final Color[] colors = {
+        Color.BLACK, Color.CYAN, Color.BLUE, Color.ORANGE,
+        Color.YELLOW, Color.GREEN, Color.MAGENTA, Color.RED
+    };
+
+    // Indexed by type * ROTATIONS + rotation (an "orientation"); MASKS has SIZE rows per orientation.
+    private static final long[] MASKS = new long[COUNT * ROTATIONS * SIZE];
+    private static final int[] MIN_ROW = new int[COUNT * ROTATIONS], MAX_ROW = new int[COUNT * ROTATIONS];
+    private static final int[] MIN_COL = new int[COUNT * ROTATIONS], MAX_COL = new int[COUNT * ROTATIONS];
+
+    static {
+        for (int t = 0; t < COUNT; t++) {
+            int[][] shape = SHAPES[t];
+            for (int r = 0; r < ROTATIONS; r++) {
+                int o = t * ROTATIONS + r;
+                MIN_ROW[o] = MIN_COL[o] = SIZE;
+                MAX_ROW[o] = MAX_COL[o] = -1;
+                for (int i = 0; i < shape.length; i++)
+                    for (int j = 0; j < shape[i].length; j++)
+                        if (shape[i][j] != 0) {
+                            MASKS[o * SIZE + i] |= 1L << j;
+                            MIN_ROW[o] = Math.min(MIN_ROW[o], i);
+                            MAX_ROW[o] = Math.max(MAX_ROW[o], i);
+                            MIN_COL[o] = Math.min(MIN_COL[o], j);
+                            MAX_COL[o] = Math.max(MAX_COL[o], j);
+                        }
+                shape = rotate(shape);
+            }
+        }
+    }
+
+    private Tetromino() {}
+
+    // Clockwise rotation of a square shape matrix; only used to build the catalog.
+    private static int[][] rotate(int[][] shape) {
+        int n = shape.length, m = shape[0].length;
+        int[][] res = new int[m][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++)
+                res[j][n - 1 - i] = shape[i][j];
+        return res;
+    }
+
+    public static int color(int type) { return type + 1; }
+    public static int orientation(int type, int rotation) { return type * ROTATIONS + rotation; }
+    public static int rotateCW(int rotation) { return (rotation + 1) & (ROTATIONS - 1); }
+    public static long rowMask(int orientation, int row) { return MASKS[orientation * SIZE + row]; }
+    public static int minRow(int orientation) { return MIN_ROW[orientation]; }
+    public static int maxRow(int orientation) { return MAX_ROW[orientation]; }
+    public static int minCol(int orientation) { return MIN_COL[orientation]; }
+    public static int maxCol(int orientation) { return MAX_COL[orientation]; }
+}
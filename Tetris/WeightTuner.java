@@ -0,0 +1,251 @@
+package Tetris;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Offline genetic search over Evaluator weights.
+//
+// Usage: WeightTuner [--population=N] [--games=G] [--generations=K] [--threads=T] [--seed=S]
+//                    [--max-pieces=P] [--rows=R] [--cols=C] [--checkpoint=tuner.txt]
+//
+// Every candidate of a generation plays the same G seeds with the greedy policy, so
+// differences in fitness (mean engine score, lines*lines*100 per clear) come from the
+// weights rather than the pieces. All population*games games of a generation run in
+// parallel. The best quarter survives; the rest is refilled by tournament selection,
+// fitness-weighted crossover and Gaussian mutation. Weight vectors are kept at unit
+// length since the greedy choice only depends on their direction.
+//
+// After each generation the population is written to the checkpoint file (replaced
+// atomically); starting again with the same file resumes where the run stopped.
+// Randomness for generation g is derived from (seed, g), so a resumed run produces
+// the same result as an uninterrupted one.
+public final class WeightTuner {
+    private static final int CHUNK = 4, TOURNAMENT = 3;
+    private static final double MUTATION = 0.2, MUTATION_RATE = 0.35;
+
+    private final int population, games, rows, cols, maxPieces;
+    private final long seed;
+    private final Path checkpoint;
+    private final double[][] weights;
+    private final double[] fitness;
+    private final long[] gameSeeds;
+    private final long[][] scores;
+    private final ThreadLocal<Worker> workers;
+    private final LongAdder played = new LongAdder();
+    private int generation;
+
+    public WeightTuner(int population, int games, long seed, int rows, int cols, int maxPieces, Path checkpoint) {
+        if (games < 1) throw new IllegalArgumentException("Need at least one game per candidate");
+        this.population = Math.max(4, population);
+        this.games = games;
+        this.seed = seed;
+        this.rows = rows;
+        this.cols = cols;
+        this.maxPieces = maxPieces;
+        this.checkpoint = checkpoint;
+        weights = new double[this.population][Evaluator.FEATURES];
+        fitness = new double[this.population];
+        gameSeeds = new long[games];
+        scores = new long[this.population][games];
+        workers = ThreadLocal.withInitial(Worker::new);
+        Xoshiro rng = new Xoshiro(seed);
+        // Start from the stock weights plus random directions around them
+        for (int i = 0; i < this.population; i++) {
+            for (int f = 0; f < Evaluator.FEATURES; f++)
+                weights[i][f] = i == 0 ? Evaluator.DEFAULT_WEIGHTS[f] : Evaluator.DEFAULT_WEIGHTS[f] + gaussian(rng) * 0.5;
+            normalize(weights[i]);
+        }
+    }
+
+    public int getGeneration() { return generation; }
+    public long getGamesPlayed() { return played.sum(); }
+    public double[] getWeights(int i) { return weights[i]; }
+    public double getFitness(int i) { return fitness[i]; }
+
+    // Loads the population from the checkpoint file if there is one; false if it does not exist.
+    public boolean resume() throws IOException {
+        if (checkpoint == null || !Files.exists(checkpoint)) return false;
+        try (BufferedReader in = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            String[] head = in.readLine().trim().split("\\s+", 2);
+            if (head.length < 2 || !head[1].equals(settings()))
+                throw new IOException("Checkpoint " + checkpoint + " was written with different settings"
+                        + " (population seed games rows cols max-pieces: " + settings() + " now)");
+            generation = Integer.parseInt(head[0]);
+            for (int i = 0; i < population; i++) {
+                String[] t = in.readLine().trim().split("\\s+");
+                fitness[i] = Double.parseDouble(t[0]);
+                for (int f = 0; f < Evaluator.FEATURES; f++) weights[i][f] = Double.parseDouble(t[f + 1]);
+            }
+        }
+        return true;
+    }
+
+    // Everything besides the generation that decides what a run computes, as stored in the checkpoint header.
+    private String settings() {
+        return population + " " + seed + " " + games + " " + rows + " " + cols + " " + maxPieces;
+    }
+
+    // Header "generation population seed games rows cols max-pieces", then "fitness w0 .. w5" per candidate, best first.
+    public void save() throws IOException {
+        if (checkpoint == null) return;
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write(generation + " " + settings() + "\n");
+            for (int i = 0; i < population; i++) {
+                StringBuilder line = new StringBuilder().append(fitness[i]);
+                for (double w : weights[i]) line.append(' ').append(w);
+                out.write(line.append('\n').toString());
+            }
+        }
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Scores the current population, sorts it best first and breeds the next one in
+    // place of the weakest candidates. Returns the best fitness.
+    public double step(ForkJoinPool pool) {
+        Xoshiro rng = new Xoshiro(Xoshiro.mix(seed ^ generation * 0x9E3779B97F4A7C15L));
+        for (int g = 0; g < games; g++) gameSeeds[g] = rng.nextLong();
+        pool.invoke(new Range(0, population * games));
+        for (int i = 0; i < population; i++) {
+            long sum = 0;
+            for (long s : scores[i]) sum += s;
+            fitness[i] = (double) sum / games;
+        }
+        sort();
+        int elite = Math.max(2, population / 4);
+        for (int i = elite; i < population; i++) {
+            int a = tournament(rng, elite), b = tournament(rng, elite);
+            double fa = Math.max(fitness[a], 1), fb = Math.max(fitness[b], 1), t = fa / (fa + fb);
+            double[] child = weights[i];
+            for (int f = 0; f < Evaluator.FEATURES; f++) {
+                child[f] = t * weights[a][f] + (1 - t) * weights[b][f];
+                if (uniform(rng) < MUTATION_RATE) child[f] += gaussian(rng) * MUTATION;
+            }
+            normalize(child);
+            fitness[i] = 0;
+        }
+        generation++;
+        return fitness[0];
+    }
+
+    private void sort() {
+        Integer[] order = new Integer[population];
+        for (int i = 0; i < population; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> Double.compare(fitness[y], fitness[x]));
+        double[][] w = new double[population][];
+        double[] f = new double[population];
+        for (int i = 0; i < population; i++) {
+            w[i] = weights[order[i]].clone();
+            f[i] = fitness[order[i]];
+        }
+        for (int i = 0; i < population; i++) {
+            weights[i] = w[i];
+            fitness[i] = f[i];
+        }
+    }
+
+    private int tournament(Xoshiro rng, int pool) {
+        int best = rng.nextInt(pool);
+        for (int k = 1; k < TOURNAMENT; k++) best = Math.min(best, rng.nextInt(pool));
+        return best;
+    }
+
+    private static double uniform(Xoshiro rng) {
+        return (rng.nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    private static double gaussian(Xoshiro rng) {
+        return Math.sqrt(-2 * Math.log(1 - uniform(rng))) * Math.cos(2 * Math.PI * uniform(rng));
+    }
+
+    private static void normalize(double[] w) {
+        double n = 0;
+        for (double x : w) n += x * x;
+        n = Math.sqrt(n);
+        if (n > 0) for (int i = 0; i < w.length; i++) w[i] /= n;
+    }
+
+    private final class Worker {
+        final TetrisEngine engine = new TetrisEngine(rows, cols, Randomizer.create("uniform", 0), 1);
+        final double[] current = new double[Evaluator.FEATURES];
+        final Policy player = new Policy.Greedy(new Evaluator(rows, cols, current));
+
+        long play(double[] w, long s) {
+            System.arraycopy(w, 0, current, 0, current.length);
+            engine.reset(s);
+            while (!engine.isGameOver() && engine.getPieces() < maxPieces) player.play(engine);
+            return engine.getScore();
+        }
+    }
+
+    // Task index i plays game (i % games) for candidate (i / games).
+    private final class Range extends RecursiveAction {
+        private final int from, to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid), new Range(mid, to));
+                return;
+            }
+            Worker w = workers.get();
+            for (int i = from; i < to; i++) {
+                int c = i / games, g = i % games;
+                scores[c][g] = w.play(weights[c], gameSeeds[g]);
+                played.increment();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> o = BatchSimulator.parseArgs(args);
+        int threads = Integer.parseInt(o.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int generations = Integer.parseInt(o.getOrDefault("generations", "50"));
+        String cp = o.getOrDefault("checkpoint", "tuner.txt");
+        WeightTuner tuner = new WeightTuner(Integer.parseInt(o.getOrDefault("population", "32")),
+                Integer.parseInt(o.getOrDefault("games", "32")), Long.parseLong(o.getOrDefault("seed", "1")),
+                Integer.parseInt(o.getOrDefault("rows", String.valueOf(TetrisEngine.DEFAULT_ROWS))),
+                Integer.parseInt(o.getOrDefault("cols", String.valueOf(TetrisEngine.DEFAULT_COLS))),
+                Integer.parseInt(o.getOrDefault("max-pieces", "1000")), cp.isEmpty() ? null : Paths.get(cp));
+        if (tuner.resume()) System.out.println("Resumed at generation " + tuner.getGeneration() + " from " + cp);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        int first = tuner.getGeneration();
+        try {
+            while (tuner.getGeneration() < generations) {
+                long t = System.nanoTime();
+                long before = tuner.getGamesPlayed();
+                double best = tuner.step(pool);
+                tuner.save();
+                double secs = (System.nanoTime() - t) / 1e9;
+                StringBuilder w = new StringBuilder();
+                for (int f = 0; f < Evaluator.FEATURES; f++)
+                    w.append(String.format(Locale.ROOT, " %s=%.4f", Evaluator.NAMES[f], tuner.getWeights(0)[f]));
+                System.out.printf(Locale.ROOT, "gen %d best=%.1f in %.2fs (%.0f games/s)%s%n", tuner.getGeneration(), best, secs,
+                        (tuner.getGamesPlayed() - before) / secs, w);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%d generations, %d games in %.2fs: %.2f generations/s, %.0f games/s%n",
+                tuner.getGeneration() - first, tuner.getGamesPlayed(), secs, (tuner.getGeneration() - first) / secs, tuner.getGamesPlayed() / secs);
+    }
+}
@@ -0,0 +1,63 @@
+package Tetris;
+import java.nio.ByteBuffer;
+
+// xoshiro256** generator. Small, fast and fully reproducible from a 64-bit seed,
+// so a game can be replayed bit-for-bit from its seed.
+public final class Xoshiro {
+    private long s0, s1, s2, s3;
+
+    public Xoshiro(long seed) {
+        setSeed(seed);
+    }
+
+    // Expands the seed with SplitMix64, as recommended by the xoshiro authors.
+    public void setSeed(long seed) {
+        s0 = mix(seed += 0x9E3779B97F4A7C15L);
+        s1 = mix(seed += 0x9E3779B97F4A7C15L);
+        s2 = mix(seed += 0x9E3779B97F4A7C15L);
+        s3 = mix(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    public void writeState(ByteBuffer buf) {
+        buf.putLong(s0).putLong(s1).putLong(s2).putLong(s3);
+    }
+
+    public void readState(ByteBuffer buf) {
+        s0 = buf.getLong();
+        s1 = buf.getLong();
+        s2 = buf.getLong();
+        s3 = buf.getLong();
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    // Unbiased value in [0, bound) using Lemire's multiply-and-reject method.
+    public int nextInt(int bound) {
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+}